@@ -0,0 +1,57 @@
+package com.sentinelaapp;
+
+/**
+ * Agenda adaptativa das checagens de URL de um navegador (substitui a escada fixa
+ * 100ms/500ms/1s/2s/3s). Para assim que a mesma URL é lida duas vezes seguidas,
+ * dobra o intervalo enquanto a barra não mostra URL e desiste acima de MAX_DELAY_MS.
+ * O serviço rearma uma agenda nova quando um evento de conteúdo toca a barra de endereço.
+ */
+final class AdaptiveUrlSchedule {
+    static final long INITIAL_DELAY_MS = 100L;
+    static final long MAX_DELAY_MS = 3200L;
+
+    private long delay = INITIAL_DELAY_MS;
+    /** Última URL lida nesta agenda (cópia só quando muda). */
+    private String lastUrl;
+    /** Uptime do evento que armou a agenda; só a primeira checagem responde a ele. */
+    private long eventTime;
+
+    AdaptiveUrlSchedule(long eventTime) {
+        this.eventTime = eventTime;
+    }
+
+    long firstDelay() {
+        return INITIAL_DELAY_MS;
+    }
+
+    /** eventTime na primeira chamada, 0 nas seguintes (rechecagens não têm evento). */
+    long takeEventTime() {
+        long time = eventTime;
+        eventTime = 0L;
+        return time;
+    }
+
+    /**
+     * URL permitida lida em text[start, end). Igual à anterior = estável, encerra;
+     * diferente = confirma no mesmo intervalo.
+     */
+    long onUrl(CharSequence text, int start, int end) {
+        if (lastUrl != null && regionEquals(lastUrl, text, start, end)) return InspectionWorker.STOP;
+        lastUrl = text.subSequence(start, end).toString();
+        return delay;
+    }
+
+    /** Barra ainda sem URL legível: recua exponencialmente. */
+    long onNoUrl() {
+        delay *= 2;
+        return delay > MAX_DELAY_MS ? InspectionWorker.STOP : delay;
+    }
+
+    private static boolean regionEquals(String a, CharSequence text, int start, int end) {
+        if (a.length() != end - start) return false;
+        for (int i = 0; i < a.length(); i++) {
+            if (a.charAt(i) != text.charAt(start + i)) return false;
+        }
+        return true;
+    }
+}
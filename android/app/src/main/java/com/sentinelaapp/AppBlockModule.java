@@ -23,9 +23,6 @@ import android.app.usage.UsageStatsManager;
 import android.provider.Settings;
 import android.text.TextUtils;
 
-import org.json.JSONArray;
-import org.json.JSONObject;
-
 import com.facebook.react.bridge.Arguments;
 import com.facebook.react.bridge.Promise;
 import com.facebook.react.bridge.ReactApplicationContext;
@@ -40,6 +37,7 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Calendar;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
@@ -51,6 +49,24 @@ public class AppBlockModule extends ReactContextBaseJavaModule {
     AppBlockModule(ReactApplicationContext context) {
         super(context);
         reactContext = context;
+        DecisionLog.get(context).eventStream().attach(context);
+    }
+
+    @Override
+    public void invalidate() {
+        DecisionLog.get(reactContext).eventStream().detach(reactContext);
+        super.invalidate();
+    }
+
+    /** NativeEventEmitter: lotes de DecisionEventStream.EVENT só saem com listener no JS. */
+    @ReactMethod
+    public void addListener(String eventName) {
+        if (DecisionEventStream.EVENT.equals(eventName)) DecisionLog.get(reactContext).eventStream().addListener();
+    }
+
+    @ReactMethod
+    public void removeListeners(double count) {
+        DecisionLog.get(reactContext).eventStream().removeListeners((int) count);
     }
 
     @Override
@@ -129,6 +145,180 @@ public class AppBlockModule extends ReactContextBaseJavaModule {
         }
     }
 
+    /** true (padrão): tela de bloqueio nativa; false: HOME + MainActivity, como antes. */
+    @ReactMethod
+    public void setNativeBlockScreen(boolean enabled, Promise promise) {
+        try {
+            SharedPreferences prefs = reactContext.getSharedPreferences(
+                    SentinelaAccessibilityService.getPrefsName(), 0);
+            prefs.edit().putBoolean(SentinelaAccessibilityService.getKeyNativeBlockScreen(), enabled).apply();
+            promise.resolve(true);
+        } catch (Exception e) {
+            promise.reject("ERROR", e.getMessage());
+        }
+    }
+
+    /**
+     * Mantém o host React aquecido a partir do connect do serviço e do boot (ReactPrewarmer).
+     * Vale a partir do próximo connect/boot.
+     */
+    @ReactMethod
+    public void setReactPrewarmEnabled(boolean enabled, Promise promise) {
+        try {
+            SharedPreferences prefs = reactContext.getSharedPreferences(
+                    SentinelaAccessibilityService.getPrefsName(), 0);
+            prefs.edit().putBoolean(SentinelaAccessibilityService.getKeyReactPrewarmEnabled(), enabled).apply();
+            promise.resolve(true);
+        } catch (Exception e) {
+            promise.reject("ERROR", e.getMessage());
+        }
+    }
+
+    /**
+     * Liga as seções de trace do motor (EngineTrace) para capturas do Perfetto/systrace.
+     * Pelo adb também liga, com o log.tag.SentinelaTrace (ver EngineTrace).
+     */
+    @ReactMethod
+    public void setEngineTracing(boolean enabled, Promise promise) {
+        try {
+            SharedPreferences prefs = reactContext.getSharedPreferences(
+                    SentinelaAccessibilityService.getPrefsName(), 0);
+            prefs.edit().putBoolean(SentinelaAccessibilityService.getKeyEngineTraceEnabled(), enabled).apply();
+            EngineTrace.setRequested(enabled);
+            promise.resolve(true);
+        } catch (Exception e) {
+            promise.reject("ERROR", e.getMessage());
+        }
+    }
+
+    /**
+     * Decisão de bloqueio -> primeiro draw, por caminho: {native, app}, e até a UI do React
+     * montada no caminho antigo: {appInteractiveWarm, appInteractiveCold}. Cada um com
+     * {count, avgMs, maxMs, lastMs}.
+     */
+    @ReactMethod
+    public void getBlockScreenLatency(Promise promise) {
+        try {
+            WritableMap result = Arguments.createMap();
+            result.putMap("native", latencyMap(BlockScreenLatency.PATH_NATIVE));
+            result.putMap("app", latencyMap(BlockScreenLatency.PATH_APP));
+            result.putMap("appInteractiveWarm", latencyMap(BlockScreenLatency.APP_INTERACTIVE_WARM));
+            result.putMap("appInteractiveCold", latencyMap(BlockScreenLatency.APP_INTERACTIVE_COLD));
+            promise.resolve(result);
+        } catch (Exception e) {
+            promise.reject("ERROR", e.getMessage());
+        }
+    }
+
+    /**
+     * Instrumentação do motor (EngineStats): p50/p90/p99/máximo por etapa, bloqueios por
+     * regra, descartes por motivo, contadores dos componentes e latência da tela de bloqueio.
+     * Percentis com precisão de balde log2 (limite superior do balde).
+     */
+    @ReactMethod
+    public void getEngineStats(Promise promise) {
+        try {
+            WritableMap stages = Arguments.createMap();
+            for (int stage = 0; stage < EngineStats.STAGE_NAMES.length; stage++) {
+                long[] hist = EngineStats.histogram(stage);
+                WritableMap m = Arguments.createMap();
+                m.putDouble("count", EngineStats.total(hist));
+                m.putDouble("p50Ms", EngineStats.percentileMicros(hist, 0.50) / 1000.0);
+                m.putDouble("p90Ms", EngineStats.percentileMicros(hist, 0.90) / 1000.0);
+                m.putDouble("p99Ms", EngineStats.percentileMicros(hist, 0.99) / 1000.0);
+                m.putDouble("maxMs", EngineStats.maxMicros(stage) / 1000.0);
+                stages.putMap(EngineStats.STAGE_NAMES[stage], m);
+            }
+            WritableMap rules = Arguments.createMap();
+            for (int i = 0; i < EngineRules.NAMES.length; i++) {
+                rules.putDouble(EngineRules.NAMES[i], EngineStats.ruleCount(i));
+            }
+            WritableMap drops = Arguments.createMap();
+            for (int i = 0; i < EngineStats.DROP_NAMES.length; i++) {
+                drops.putDouble(EngineStats.DROP_NAMES[i], EngineStats.dropCount(i));
+            }
+            Map<String, Long> runtime = SentinelaAccessibilityService.runtimeStats();
+            Map<String, WritableMap> groups = new LinkedHashMap<>();
+            for (Map.Entry<String, Long> e : runtime.entrySet()) {
+                String key = e.getKey();
+                int dot = key.indexOf('.');
+                WritableMap group = groups.get(key.substring(0, dot));
+                if (group == null) {
+                    group = Arguments.createMap();
+                    groups.put(key.substring(0, dot), group);
+                }
+                group.putDouble(key.substring(dot + 1), e.getValue());
+            }
+            WritableMap blockScreen = Arguments.createMap();
+            blockScreen.putMap("native", latencyMap(BlockScreenLatency.PATH_NATIVE));
+            blockScreen.putMap("app", latencyMap(BlockScreenLatency.PATH_APP));
+
+            WritableMap result = Arguments.createMap();
+            result.putBoolean("serviceRunning", SentinelaAccessibilityService.isRunning());
+            result.putMap("stages", stages);
+            result.putMap("rules", rules);
+            result.putMap("drops", drops);
+            for (Map.Entry<String, WritableMap> e : groups.entrySet()) result.putMap(e.getKey(), e.getValue());
+            result.putMap("blockScreen", blockScreen);
+            promise.resolve(result);
+        } catch (Exception e) {
+            promise.reject("ERROR", e.getMessage());
+        }
+    }
+
+    /**
+     * Decisões do DecisionLog a partir de cursor (0 = a mais antiga ainda no anel), até limit.
+     * Retorna {decisions: [{seq, time, rule, blocked, packageName, detail, latencyMs}],
+     * nextCursor, oldestCursor, truncated}; truncated indica que o anel já sobrescreveu
+     * registros depois do cursor.
+     */
+    @ReactMethod
+    public void getDecisions(double cursor, int limit, Promise promise) {
+        try {
+            int max = Math.max(1, Math.min(limit, MAX_DECISIONS_PER_READ));
+            DecisionLog.get(reactContext).readSince((long) Math.max(0, cursor), max, batch -> {
+                try {
+                    promise.resolve(decisionsMap(batch));
+                } catch (RuntimeException e) {
+                    promise.reject("ERROR", e.getMessage());
+                }
+            });
+        } catch (Exception e) {
+            promise.reject("ERROR", e.getMessage());
+        }
+    }
+
+    private static WritableMap decisionsMap(DecisionLog.Batch batch) {
+        WritableArray list = Arguments.createArray();
+        for (DecisionLog.Entry e : batch.entries) {
+            WritableMap m = Arguments.createMap();
+            m.putDouble("seq", e.seq);
+            m.putDouble("time", e.timeMs);
+            m.putString("rule", EngineRules.name(e.rule));
+            m.putBoolean("blocked", e.blocked);
+            m.putString("packageName", e.packageName);
+            m.putString("detail", e.detail);
+            m.putDouble("latencyMs", e.latencyMicros / 1000.0);
+            list.pushMap(m);
+        }
+        WritableMap result = Arguments.createMap();
+        result.putArray("decisions", list);
+        result.putDouble("nextCursor", batch.nextCursor);
+        result.putDouble("oldestCursor", batch.oldestCursor);
+        result.putBoolean("truncated", batch.truncated);
+        return result;
+    }
+
+    private static WritableMap latencyMap(int path) {
+        long[] s = BlockScreenLatency.snapshot(path);
+        WritableMap map = Arguments.createMap();
+        map.putDouble("count", s[0]);
+        map.putDouble("avgMs", s[1] / 1000.0);
+        map.putDouble("maxMs", s[2] / 1000.0);
+        map.putDouble("lastMs", s[3] / 1000.0);
+        return map;
+    }
+
     @ReactMethod
     public void setBlockedApps(ReadableArray packages, Promise promise) {
         try {
@@ -302,7 +492,10 @@ public class AppBlockModule extends ReactContextBaseJavaModule {
         return null;
     }
 
+    /** Chave legada do SentinelaPrefs; só lida na migração do TemporaryUnlockRegistry. */
     private static final String KEY_TEMP_UNLOCKS = "temp_app_unlocks";
+    private static final long THIRTY_MINUTES_MS = 30L * 60L * 1000L;
+    private static final int MAX_DECISIONS_PER_READ = 1_000;
 
     @ReactMethod
     public void addTemporaryUnlock(String packageName, double expiresAtMs, Promise promise) {
@@ -311,21 +504,7 @@ public class AppBlockModule extends ReactContextBaseJavaModule {
                 promise.resolve(true);
                 return;
             }
-            SharedPreferences prefs = reactContext.getSharedPreferences(
-                    SentinelaAccessibilityService.getPrefsName(), 0);
-            String raw = prefs.getString(KEY_TEMP_UNLOCKS, "[]");
-            JSONArray arr = new JSONArray(raw);
-            long now = System.currentTimeMillis();
-            JSONArray kept = new JSONArray();
-            for (int i = 0; i < arr.length(); i++) {
-                JSONObject o = arr.getJSONObject(i);
-                if (o.optLong("exp", 0) > now) kept.put(o);
-            }
-            JSONObject entry = new JSONObject();
-            entry.put("pkg", packageName);
-            entry.put("exp", (long) expiresAtMs);
-            kept.put(entry);
-            prefs.edit().putString(KEY_TEMP_UNLOCKS, kept.toString()).apply();
+            TemporaryUnlockRegistry.get(reactContext).add(packageName, (long) expiresAtMs);
             promise.resolve(true);
         } catch (Exception e) {
             promise.reject("ERROR", e.getMessage());
@@ -339,33 +518,34 @@ public class AppBlockModule extends ReactContextBaseJavaModule {
     @ReactMethod
     public void addThirtyMinutes(Promise promise) {
         try {
-            SharedPreferences prefs = reactContext.getSharedPreferences(
-                    SentinelaAccessibilityService.getPrefsName(), 0);
-            String packageName = prefs.getString(
-                    SentinelaAccessibilityService.getKeyLastForegroundPackage(),
-                    null
-            );
+            String packageName = ForegroundJournal.current(reactContext);
 
             if (TextUtils.isEmpty(packageName) || packageName.equals(reactContext.getPackageName())) {
                 promise.resolve(false);
                 return;
             }
 
+            TemporaryUnlockRegistry.get(reactContext).add(packageName, System.currentTimeMillis() + THIRTY_MINUTES_MS);
+            promise.resolve(true);
+        } catch (Exception e) {
+            promise.reject("ERROR", e.getMessage());
+        }
+    }
+
+    /** Desbloqueios ativos: [{packageName, expiresAt, remainingMs}], do que expira primeiro. */
+    @ReactMethod
+    public void listActiveUnlocks(Promise promise) {
+        try {
             long now = System.currentTimeMillis();
-            long expiresAtMs = now + (30L * 60L * 1000L);
-            String raw = prefs.getString(KEY_TEMP_UNLOCKS, "[]");
-            JSONArray arr = new JSONArray(raw);
-            JSONArray kept = new JSONArray();
-            for (int i = 0; i < arr.length(); i++) {
-                JSONObject o = arr.getJSONObject(i);
-                if (o.optLong("exp", 0) > now) kept.put(o);
+            WritableArray out = Arguments.createArray();
+            for (TemporaryUnlockRegistry.Unlock unlock : TemporaryUnlockRegistry.get(reactContext).listActive()) {
+                WritableMap item = Arguments.createMap();
+                item.putString("packageName", unlock.packageName);
+                item.putDouble("expiresAt", unlock.expiresAt);
+                item.putDouble("remainingMs", Math.max(0L, unlock.expiresAt - now));
+                out.pushMap(item);
             }
-            JSONObject entry = new JSONObject();
-            entry.put("pkg", packageName);
-            entry.put("exp", expiresAtMs);
-            kept.put(entry);
-            prefs.edit().putString(KEY_TEMP_UNLOCKS, kept.toString()).apply();
-            promise.resolve(true);
+            promise.resolve(out);
         } catch (Exception e) {
             promise.reject("ERROR", e.getMessage());
         }
@@ -0,0 +1,192 @@
+package com.sentinelaapp;
+
+import android.accessibilityservice.AccessibilityService;
+import android.content.Context;
+import android.content.pm.PackageManager;
+import android.graphics.Color;
+import android.graphics.PixelFormat;
+import android.util.Log;
+import android.util.TypedValue;
+import android.view.Gravity;
+import android.view.KeyEvent;
+import android.view.ViewGroup;
+import android.view.WindowManager;
+import android.widget.Button;
+import android.widget.FrameLayout;
+import android.widget.LinearLayout;
+import android.widget.TextView;
+
+/**
+ * Tela de bloqueio nativa: uma janela TYPE_ACCESSIBILITY_OVERLAY do próprio serviço, montada
+ * sem layout XML e sem React Native, que cobre o app bloqueado já no próximo frame. Antes o
+ * bloqueio era HOME + MainActivity, e com o host RN frio o app bloqueado continuava visível
+ * enquanto Hermes e o bundle carregavam. Mostra o motivo e oferece o caminho para o app.
+ * Só na thread principal.
+ */
+final class BlockOverlay {
+    private static final String TAG = "SentinelaBlockOverlay";
+
+    static final int REASON_APP = 0;
+    static final int REASON_DOMAIN = 1;
+    static final int REASON_KEYWORD = 2;
+    static final int REASON_FORCE = 3;
+    static final int REASON_REST = 4;
+
+    private static final int BACKGROUND = 0xFF101418;
+
+    private final AccessibilityService service;
+    private final WindowManager windowManager;
+    private final Runnable openApp;
+
+    private FrameLayout root;
+    private TextView titleView;
+    private TextView detailView;
+    private boolean attached;
+    /** Pacote coberto pela tela (null quando escondida). */
+    private String blockedPackage;
+
+    BlockOverlay(AccessibilityService service, Runnable openApp) {
+        this.service = service;
+        this.windowManager = (WindowManager) service.getSystemService(Context.WINDOW_SERVICE);
+        this.openApp = openApp;
+    }
+
+    /** Cobre packageName. detail é o domínio ou a keyword; com null mostra o nome do app, resolvido depois do frame. */
+    void show(String packageName, int reason, String detail) {
+        try {
+            if (root == null) root = build();
+            blockedPackage = packageName;
+            titleView.setText(title(reason));
+            detailView.setText(detail == null ? "" : detail);
+            if (!attached) {
+                windowManager.addView(root, layoutParams());
+                attached = true;
+            } else {
+                root.invalidate();
+            }
+            BlockScreenLatency.recordFirstDraw(root, BlockScreenLatency.PATH_NATIVE);
+            if (detail == null) {
+                // O rótulo vem do PackageManager (binder): fica fora do caminho do primeiro frame.
+                root.post(() -> {
+                    if (packageName.equals(blockedPackage)) detailView.setText(appLabel(packageName));
+                });
+            }
+        } catch (RuntimeException e) {
+            Log.w(TAG, "show: " + e.getMessage());
+            attached = false;
+            service.performGlobalAction(AccessibilityService.GLOBAL_ACTION_HOME);
+        }
+    }
+
+    void hide() {
+        blockedPackage = null;
+        if (!attached) return;
+        attached = false;
+        try {
+            windowManager.removeView(root);
+        } catch (RuntimeException e) {
+            Log.w(TAG, "hide: " + e.getMessage());
+        }
+    }
+
+    boolean isShowing() {
+        return attached;
+    }
+
+    String getBlockedPackage() {
+        return blockedPackage;
+    }
+
+    private void goHome() {
+        service.performGlobalAction(AccessibilityService.GLOBAL_ACTION_HOME);
+        hide();
+    }
+
+    private static String title(int reason) {
+        switch (reason) {
+            case REASON_DOMAIN: return "Site bloqueado";
+            case REASON_KEYWORD: return "Conteúdo bloqueado";
+            case REASON_FORCE: return "Bloqueio ativado pelo responsável";
+            case REASON_REST: return "Modo Descanso ativo";
+            default: return "App bloqueado";
+        }
+    }
+
+    private String appLabel(String packageName) {
+        try {
+            PackageManager pm = service.getPackageManager();
+            return pm.getApplicationLabel(pm.getApplicationInfo(packageName, 0)).toString();
+        } catch (PackageManager.NameNotFoundException e) {
+            return packageName;
+        }
+    }
+
+    private FrameLayout build() {
+        Context context = service;
+        FrameLayout frame = new FrameLayout(context) {
+            @Override
+            public boolean dispatchKeyEvent(KeyEvent event) {
+                if (event.getKeyCode() == KeyEvent.KEYCODE_BACK) {
+                    if (event.getAction() == KeyEvent.ACTION_UP) goHome();
+                    return true;
+                }
+                return super.dispatchKeyEvent(event);
+            }
+        };
+        frame.setBackgroundColor(BACKGROUND);
+
+        LinearLayout column = new LinearLayout(context);
+        column.setOrientation(LinearLayout.VERTICAL);
+        column.setGravity(Gravity.CENTER_HORIZONTAL);
+        int pad = dp(32);
+        column.setPadding(pad, pad, pad, pad);
+
+        titleView = new TextView(context);
+        titleView.setTextColor(Color.WHITE);
+        titleView.setTextSize(TypedValue.COMPLEX_UNIT_SP, 24);
+        titleView.setGravity(Gravity.CENTER);
+        column.addView(titleView);
+
+        detailView = new TextView(context);
+        detailView.setTextColor(0xFFB0BEC5);
+        detailView.setTextSize(TypedValue.COMPLEX_UNIT_SP, 16);
+        detailView.setGravity(Gravity.CENTER);
+        detailView.setPadding(0, dp(12), 0, dp(32));
+        column.addView(detailView);
+
+        Button home = new Button(context);
+        home.setText("Voltar ao início");
+        home.setOnClickListener(v -> goHome());
+        column.addView(home, new LinearLayout.LayoutParams(ViewGroup.LayoutParams.MATCH_PARENT,
+                ViewGroup.LayoutParams.WRAP_CONTENT));
+
+        Button open = new Button(context);
+        open.setText("Abrir Sentinela");
+        open.setOnClickListener(v -> {
+            hide();
+            openApp.run();
+        });
+        column.addView(open, new LinearLayout.LayoutParams(ViewGroup.LayoutParams.MATCH_PARENT,
+                ViewGroup.LayoutParams.WRAP_CONTENT));
+
+        frame.addView(column, new FrameLayout.LayoutParams(ViewGroup.LayoutParams.MATCH_PARENT,
+                ViewGroup.LayoutParams.WRAP_CONTENT, Gravity.CENTER));
+        return frame;
+    }
+
+    private static WindowManager.LayoutParams layoutParams() {
+        // Focável (sem FLAG_NOT_FOCUSABLE) para receber o botão voltar.
+        WindowManager.LayoutParams lp = new WindowManager.LayoutParams(
+                WindowManager.LayoutParams.MATCH_PARENT,
+                WindowManager.LayoutParams.MATCH_PARENT,
+                WindowManager.LayoutParams.TYPE_ACCESSIBILITY_OVERLAY,
+                WindowManager.LayoutParams.FLAG_LAYOUT_IN_SCREEN,
+                PixelFormat.OPAQUE);
+        lp.windowAnimations = 0;
+        return lp;
+    }
+
+    private int dp(int value) {
+        return Math.round(value * service.getResources().getDisplayMetrics().density);
+    }
+}
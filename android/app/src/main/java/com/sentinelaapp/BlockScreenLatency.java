@@ -0,0 +1,99 @@
+package com.sentinelaapp;
+
+import android.os.SystemClock;
+import android.view.View;
+import android.view.ViewGroup;
+import android.view.ViewTreeObserver;
+
+import java.util.function.BooleanSupplier;
+
+/**
+ * Tempo entre a decisão de bloqueio e a tela que cobre o app bloqueado, medido nos dois
+ * caminhos: a tela nativa (BlockOverlay) e o antigo HOME + MainActivity. Para a MainActivity
+ * há também o tempo até interativo (primeiro draw com a UI do React já montada), separado
+ * por host RN já aquecido ou frio (ver ReactPrewarmer).
+ * A decisão marca o instante; a janela que aparece registra no primeiro draw depois dele.
+ * Decisões sem draw em até STALE_AFTER_MS são descartadas (ex.: a Activity não abriu).
+ */
+final class BlockScreenLatency {
+    /** Decisão -> primeiro draw do overlay nativo. */
+    static final int PATH_NATIVE = 0;
+    /** Decisão -> primeiro draw da MainActivity. */
+    static final int PATH_APP = 1;
+    /** Decisão -> primeiro draw da MainActivity com a UI do React montada, host já aquecido. */
+    static final int APP_INTERACTIVE_WARM = 2;
+    /** Idem, com o host RN ainda por inicializar. */
+    static final int APP_INTERACTIVE_COLD = 3;
+    private static final int MEASURES = 4;
+    private static final long STALE_AFTER_MS = 10_000L;
+
+    private static final long[] pendingSince = new long[MEASURES];
+    private static final long[] count = new long[MEASURES];
+    private static final long[] totalMicros = new long[MEASURES];
+    private static final long[] maxMicros = new long[MEASURES];
+    private static final long[] lastMicros = new long[MEASURES];
+
+    private BlockScreenLatency() {}
+
+    /** Marca a decisão de bloqueio que vai aparecer na medida indicada. */
+    static synchronized void markDecision(int measure) {
+        pendingSince[measure] = SystemClock.elapsedRealtimeNanos();
+    }
+
+    /** Há decisão esperando draw na medida indicada. */
+    static synchronized boolean isPending(int measure) {
+        return pendingSince[measure] != 0L;
+    }
+
+    /** Registra no próximo draw de view, se houver decisão pendente. */
+    static void recordFirstDraw(View view, int measure) {
+        recordOnDraw(view, measure, () -> true);
+    }
+
+    /**
+     * Chamado no onResume da MainActivity: primeiro draw e, para o tempo até interativo, o
+     * primeiro draw em que a raiz do React (filho de content) já tem filhos.
+     */
+    static void recordAppPath(View decor, ViewGroup content) {
+        recordFirstDraw(decor, PATH_APP);
+        BooleanSupplier reactMounted = () -> {
+            if (content.getChildCount() == 0) return false;
+            View root = content.getChildAt(0);
+            return root instanceof ViewGroup && ((ViewGroup) root).getChildCount() > 0;
+        };
+        recordOnDraw(decor, APP_INTERACTIVE_WARM, reactMounted);
+        recordOnDraw(decor, APP_INTERACTIVE_COLD, reactMounted);
+    }
+
+    private static void recordOnDraw(View view, int measure, BooleanSupplier ready) {
+        if (!isPending(measure)) return;
+        ViewTreeObserver.OnDrawListener listener = new ViewTreeObserver.OnDrawListener() {
+            @Override
+            public void onDraw() {
+                if (isPending(measure) && !ready.getAsBoolean()) return;
+                record(measure, SystemClock.elapsedRealtimeNanos());
+                // Não é permitido remover o listener dentro do próprio onDraw.
+                view.post(() -> view.getViewTreeObserver().removeOnDrawListener(this));
+            }
+        };
+        view.getViewTreeObserver().addOnDrawListener(listener);
+    }
+
+    private static synchronized void record(int measure, long now) {
+        long since = pendingSince[measure];
+        if (since == 0L) return;
+        pendingSince[measure] = 0L;
+        long micros = (now - since) / 1_000L;
+        if (micros > STALE_AFTER_MS * 1_000L) return;
+        count[measure]++;
+        totalMicros[measure] += micros;
+        lastMicros[measure] = micros;
+        if (micros > maxMicros[measure]) maxMicros[measure] = micros;
+    }
+
+    /** {count, média, máximo, último} em microssegundos. */
+    static synchronized long[] snapshot(int measure) {
+        long n = count[measure];
+        return new long[] {n, n == 0 ? 0 : totalMicros[measure] / n, maxMicros[measure], lastMicros[measure]};
+    }
+}
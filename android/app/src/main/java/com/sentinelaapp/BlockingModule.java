@@ -2,27 +2,47 @@ package com.sentinelaapp;
 
 import android.content.Context;
 import android.content.SharedPreferences;
+import android.content.res.AssetFileDescriptor;
+import android.net.Uri;
+import android.os.SystemClock;
 import android.text.TextUtils;
 import android.util.Log;
 
+import com.facebook.react.bridge.Arguments;
 import com.facebook.react.bridge.Promise;
 import com.facebook.react.bridge.ReactApplicationContext;
 import com.facebook.react.bridge.ReactContextBaseJavaModule;
 import com.facebook.react.bridge.ReactMethod;
 import com.facebook.react.bridge.ReadableArray;
+import com.facebook.react.bridge.WritableMap;
+import com.facebook.react.modules.core.DeviceEventManagerModule;
 
-import org.json.JSONArray;
-
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Locale;
 import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 /**
  * Módulo de bloqueio local de URLs ( substitui VPN/DNS ).
  * Gerencia blacklist, whitelist e keywords para o SentinelaAccessibilityService.
+ * As listas vão para o policy.bin (PolicyStore), não para o SentinelaPrefs.
  */
 public class BlockingModule extends ReactContextBaseJavaModule {
     private static final String TAG = "BlockingModule";
+    static final String IMPORT_PROGRESS_EVENT = "sentinela.import_progress";
+    private static final long IMPORT_PROGRESS_INTERVAL_MS = 250L;
+    /**
+     * Toda gravação do policy.bin (listas, importações, deltas) roda aqui, uma de cada vez e
+     * fora da thread dos módulos nativos: cada gravação termina em fsync + rename.
+     */
+    private static final ExecutorService LIST_EXECUTOR = Executors.newSingleThreadExecutor();
     private final ReactApplicationContext reactContext;
 
     BlockingModule(ReactApplicationContext context) {
@@ -72,12 +92,7 @@ public class BlockingModule extends ReactContextBaseJavaModule {
                     }
                 }
             }
-            JSONArray arr = new JSONArray();
-            for (String s : set) arr.put(s);
-            SharedPreferences prefs = reactContext.getSharedPreferences(
-                    SentinelaAccessibilityService.getPrefsName(), 0);
-            prefs.edit().putString(SentinelaAccessibilityService.getKeyBlockedDomains(), arr.toString()).apply();
-            promise.resolve(true);
+            submitReplace(PolicyFile.SECTION_BLACKLIST, set, promise);
         } catch (Exception e) {
             promise.reject("ERROR", e.getMessage());
         }
@@ -97,17 +112,227 @@ public class BlockingModule extends ReactContextBaseJavaModule {
                     }
                 }
             }
-            JSONArray arr = new JSONArray();
-            for (String s : set) arr.put(s);
+            submitReplace(PolicyFile.SECTION_WHITELIST, set, promise);
+        } catch (Exception e) {
+            promise.reject("ERROR", e.getMessage());
+        }
+    }
+
+    /**
+     * Sobrescreve/estende os perfis de navegador do APK (mesmo formato de browser_profiles.json).
+     * String vazia ou null volta aos perfis empacotados.
+     */
+    @ReactMethod
+    public void setBrowserProfiles(String json, Promise promise) {
+        try {
             SharedPreferences prefs = reactContext.getSharedPreferences(
                     SentinelaAccessibilityService.getPrefsName(), 0);
-            prefs.edit().putString(SentinelaAccessibilityService.getKeyWhitelistDomains(), arr.toString()).apply();
+            if (TextUtils.isEmpty(json)) {
+                prefs.edit().remove(SentinelaAccessibilityService.getKeyBrowserProfilesOverride()).apply();
+                promise.resolve(true);
+                return;
+            }
+            try {
+                BrowserProfile.parse(json);
+            } catch (Exception e) {
+                promise.reject("INVALID_PROFILES", e.getMessage());
+                return;
+            }
+            prefs.edit().putString(SentinelaAccessibilityService.getKeyBrowserProfilesOverride(), json).apply();
             promise.resolve(true);
         } catch (Exception e) {
             promise.reject("ERROR", e.getMessage());
         }
     }
 
+    /**
+     * Importa uma lista grande (hosts ou um domínio por linha) de um content:// URI ou de um
+     * arquivo do app direto para o policy.bin, numa thread própria. list é "blacklist" ou
+     * "whitelist"; com replace=false os domínios são somados à lista atual. O progresso sai
+     * no evento IMPORT_PROGRESS_EVENT; resolve com {entries, version}.
+     */
+    @ReactMethod
+    public void importDomainList(String source, String list, boolean replace, Promise promise) {
+        final int sectionId;
+        if ("blacklist".equals(list)) {
+            sectionId = PolicyFile.SECTION_BLACKLIST;
+        } else if ("whitelist".equals(list)) {
+            sectionId = PolicyFile.SECTION_WHITELIST;
+        } else {
+            promise.reject("INVALID_LIST", "Lista desconhecida: " + list);
+            return;
+        }
+        LIST_EXECUTOR.execute(() -> {
+            DomainListImporter importer = new DomainListImporter(reactContext.getCacheDir(), this::emitImportProgress);
+            try {
+                try (InputStream in = openImportSource(source)) {
+                    importer.read(in, importSourceLength(source));
+                }
+                final int[] written = new int[1];
+                long version = PolicyStore.rewriteSection(reactContext, sectionId, new PolicyStore.SectionContent() {
+                    @Override
+                    public int maxRecords(PolicyFile current) {
+                        return importer.maxRecords(replace ? null : current.section(sectionId));
+                    }
+
+                    @Override
+                    public void write(PolicyFile current, PolicyFile.Writer writer, DomainBloom.Builder bloom)
+                            throws IOException {
+                        written[0] = importer.merge(replace ? null : current.section(sectionId), writer, bloom);
+                    }
+                });
+                Log.i(TAG, "Lista importada (" + list + "): " + written[0] + " domínios, v" + version);
+                WritableMap result = Arguments.createMap();
+                result.putInt("entries", written[0]);
+                result.putDouble("version", version);
+                promise.resolve(result);
+            } catch (Exception e) {
+                Log.e(TAG, "importDomainList: " + e.getMessage());
+                promise.reject("IMPORT_FAILED", e.getMessage());
+            } finally {
+                importer.close();
+            }
+        });
+    }
+
+    /**
+     * Versão atual da política, base para {@link #applyDelta}. Passa pelo LIST_EXECUTOR: já
+     * conta as gravações enfileiradas antes, e a migração do primeiro acesso grava o arquivo.
+     */
+    @ReactMethod
+    public void getPolicyVersion(Promise promise) {
+        LIST_EXECUTOR.execute(() -> {
+            try {
+                promise.resolve((double) PolicyStore.currentVersion(reactContext));
+            } catch (Exception e) {
+                promise.reject("ERROR", e.getMessage());
+            }
+        });
+    }
+
+    /** Soma domínios (ou keywords) a uma lista sem reenviar a lista inteira. */
+    @ReactMethod
+    public void addDomains(String list, ReadableArray values, Promise promise) {
+        submitDelta(list, PolicyStore.ANY_VERSION, values, null, promise);
+    }
+
+    @ReactMethod
+    public void removeDomains(String list, ReadableArray values, Promise promise) {
+        submitDelta(list, PolicyStore.ANY_VERSION, null, values, promise);
+    }
+
+    /**
+     * Aplica adds/removes numa lista ("blacklist", "whitelist" ou "keywords") se a política
+     * ainda estiver em baseVersion (negativo: qualquer versão). Resolve com a nova versão;
+     * rejeita com VERSION_CONFLICT (userInfo.currentVersion) se ela tiver mudado.
+     */
+    @ReactMethod
+    public void applyDelta(String list, double baseVersion, ReadableArray adds, ReadableArray removes,
+                           Promise promise) {
+        submitDelta(list, baseVersion < 0 ? PolicyStore.ANY_VERSION : (long) baseVersion, adds, removes, promise);
+    }
+
+    private void submitDelta(String list, long baseVersion, ReadableArray adds, ReadableArray removes,
+                             Promise promise) {
+        int sectionId = sectionFor(list);
+        if (sectionId < 0) {
+            promise.reject("INVALID_LIST", "Lista desconhecida: " + list);
+            return;
+        }
+        List<String> addValues = readStrings(adds);
+        List<String> removeValues = readStrings(removes);
+        LIST_EXECUTOR.execute(() -> {
+            try {
+                long version = PolicyStore.applyDelta(reactContext, sectionId, baseVersion, addValues, removeValues);
+                promise.resolve((double) version);
+            } catch (PolicyStore.VersionConflictException e) {
+                WritableMap info = Arguments.createMap();
+                info.putDouble("currentVersion", e.currentVersion);
+                promise.reject("VERSION_CONFLICT", e.getMessage(), info);
+            } catch (Exception e) {
+                Log.e(TAG, "applyDelta: " + e.getMessage());
+                promise.reject("ERROR", e.getMessage());
+            }
+        });
+    }
+
+    /** Substitui a lista inteira no LIST_EXECUTOR; resolve com true depois do rename. */
+    private void submitReplace(int sectionId, Set<String> values, Promise promise) {
+        LIST_EXECUTOR.execute(() -> {
+            try {
+                PolicyStore.replaceSection(reactContext, sectionId, values);
+                promise.resolve(true);
+            } catch (Exception e) {
+                Log.e(TAG, "replaceSection: " + e.getMessage());
+                promise.reject("ERROR", e.getMessage());
+            }
+        });
+    }
+
+    private static int sectionFor(String list) {
+        if ("blacklist".equals(list)) return PolicyFile.SECTION_BLACKLIST;
+        if ("whitelist".equals(list)) return PolicyFile.SECTION_WHITELIST;
+        if ("keywords".equals(list)) return PolicyFile.SECTION_KEYWORDS;
+        return -1;
+    }
+
+    /** Strings não vazias do array (a normalização fica com o PolicyFile). */
+    private static List<String> readStrings(ReadableArray values) {
+        List<String> out = new ArrayList<>();
+        if (values == null) return out;
+        for (int i = 0; i < values.size(); i++) {
+            if (values.getType(i) == com.facebook.react.bridge.ReadableType.String) {
+                String v = values.getString(i);
+                if (v != null && !v.trim().isEmpty()) out.add(v);
+            }
+        }
+        return out;
+    }
+
+    private InputStream openImportSource(String source) throws IOException {
+        if (TextUtils.isEmpty(source)) throw new IOException("Origem vazia");
+        if (source.startsWith("content://") || source.startsWith("file://")) {
+            InputStream in = reactContext.getContentResolver().openInputStream(Uri.parse(source));
+            if (in == null) throw new IOException("Não foi possível abrir " + source);
+            return in;
+        }
+        File file = source.startsWith("/") ? new File(source) : new File(reactContext.getFilesDir(), source);
+        return new FileInputStream(file);
+    }
+
+    /** Tamanho da origem para o progresso, ou -1 se desconhecido. */
+    private long importSourceLength(String source) {
+        try {
+            if (source.startsWith("content://") || source.startsWith("file://")) {
+                try (AssetFileDescriptor afd = reactContext.getContentResolver()
+                        .openAssetFileDescriptor(Uri.parse(source), "r")) {
+                    return afd == null ? -1 : afd.getLength();
+                }
+            }
+            File file = source.startsWith("/") ? new File(source) : new File(reactContext.getFilesDir(), source);
+            return file.length();
+        } catch (Exception e) {
+            return -1;
+        }
+    }
+
+    private long lastImportProgressAt;
+
+    /** No máximo um evento a cada IMPORT_PROGRESS_INTERVAL_MS, além das trocas de fase. */
+    private void emitImportProgress(String phase, long bytesRead, long totalBytes, long entries) {
+        long now = SystemClock.uptimeMillis();
+        if ("reading".equals(phase) && now - lastImportProgressAt < IMPORT_PROGRESS_INTERVAL_MS) return;
+        lastImportProgressAt = now;
+        if (!reactContext.hasActiveReactInstance()) return;
+        WritableMap event = Arguments.createMap();
+        event.putString("phase", phase);
+        event.putDouble("bytesRead", bytesRead);
+        event.putDouble("totalBytes", totalBytes);
+        event.putDouble("entries", entries);
+        reactContext.getJSModule(DeviceEventManagerModule.RCTDeviceEventEmitter.class)
+                .emit(IMPORT_PROGRESS_EVENT, event);
+    }
+
     @ReactMethod
     public void setKeywords(ReadableArray keywords, Promise promise) {
         try {
@@ -122,12 +347,7 @@ public class BlockingModule extends ReactContextBaseJavaModule {
                     }
                 }
             }
-            JSONArray arr = new JSONArray();
-            for (String s : set) arr.put(s);
-            SharedPreferences prefs = reactContext.getSharedPreferences(
-                    SentinelaAccessibilityService.getPrefsName(), 0);
-            prefs.edit().putString(SentinelaAccessibilityService.getKeyBlockedKeywords(), arr.toString()).apply();
-            promise.resolve(true);
+            submitReplace(PolicyFile.SECTION_KEYWORDS, set, promise);
         } catch (Exception e) {
             promise.reject("ERROR", e.getMessage());
         }
@@ -30,5 +30,6 @@ public class BootCompletedReceiver extends BroadcastReceiver {
         if (!prefs.getBoolean(SentinelaAccessibilityService.getKeyEnabled(), false)) {
             prefs.edit().putBoolean(SentinelaAccessibilityService.getKeyEnabled(), true).apply();
         }
+        ReactPrewarmer.prewarm(context, "boot");
     }
 }
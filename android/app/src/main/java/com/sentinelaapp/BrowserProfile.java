@@ -0,0 +1,131 @@
+package com.sentinelaapp;
+
+import android.content.Context;
+import android.util.Log;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Como encontrar a barra de endereço de um navegador.
+ * Os perfis vêm do asset browser_profiles.json e podem ser sobrescritos pelo JS
+ * (BlockingModule.setBrowserProfiles), então um navegador novo não exige outro APK.
+ *
+ * Formato de cada entrada: {"package", "urlBarIds": [...], "bareHost", "textFallback",
+ * "stripPrefixes": [...]}. Ids sem ":id/" são prefixados com o pacote.
+ */
+final class BrowserProfile {
+    private static final String TAG = "SentinelaBrowsers";
+    private static final String ASSET = "browser_profiles.json";
+
+    private static volatile Map<String, BrowserProfile> bundled;
+
+    final String packageName;
+    /** Ids completos ("pacote:id/nome") da barra de endereço. */
+    final String[] urlBarIds;
+    /** A barra mostra o host sem esquema ("example.com/path"). Falso se a entrada omitir. */
+    final boolean bareHost;
+    /** Se a barra não for achada, procura a URL no texto da árvore. */
+    final boolean textFallback;
+    /** Prefixos exibidos antes da URL que devem ser ignorados. */
+    final String[] stripPrefixes;
+
+    private BrowserProfile(String packageName, String[] urlBarIds, boolean bareHost, boolean textFallback,
+                           String[] stripPrefixes) {
+        this.packageName = packageName;
+        this.urlBarIds = urlBarIds;
+        this.bareHost = bareHost;
+        this.textFallback = textFallback;
+        this.stripPrefixes = stripPrefixes;
+    }
+
+    boolean isUrlBar(String viewId) {
+        if (viewId == null) return false;
+        for (String id : urlBarIds) {
+            if (id.equals(viewId)) return true;
+        }
+        return false;
+    }
+
+    /** Onde a URL começa no texto da barra, pulando um prefixo conhecido. */
+    int urlStart(CharSequence text) {
+        for (String prefix : stripPrefixes) {
+            int n = prefix.length();
+            if (text.length() < n) continue;
+            boolean match = true;
+            for (int i = 0; i < n && match; i++) match = text.charAt(i) == prefix.charAt(i);
+            if (match) return n;
+        }
+        return 0;
+    }
+
+    /** Perfis empacotados no APK; lidos do asset uma única vez por processo. */
+    static Map<String, BrowserProfile> loadBundled(Context context) {
+        Map<String, BrowserProfile> cached = bundled;
+        if (cached != null) return cached;
+        synchronized (BrowserProfile.class) {
+            if (bundled == null) {
+                try (InputStream in = context.getAssets().open(ASSET)) {
+                    ByteArrayOutputStream out = new ByteArrayOutputStream();
+                    byte[] buf = new byte[4096];
+                    int n;
+                    while ((n = in.read(buf)) > 0) out.write(buf, 0, n);
+                    bundled = Collections.unmodifiableMap(
+                            parse(new String(out.toByteArray(), StandardCharsets.UTF_8)));
+                } catch (Exception e) {
+                    Log.e(TAG, "Falha ao ler " + ASSET + ": " + e.getMessage());
+                    bundled = Collections.emptyMap();
+                }
+            }
+            return bundled;
+        }
+    }
+
+    /** Perfis empacotados com as entradas do override JSON por cima (mesmo pacote substitui). */
+    static Map<String, BrowserProfile> merge(Map<String, BrowserProfile> base, String overrideJson) {
+        if (overrideJson == null || overrideJson.isEmpty()) return base;
+        try {
+            Map<String, BrowserProfile> merged = new HashMap<>(base);
+            merged.putAll(parse(overrideJson));
+            return Collections.unmodifiableMap(merged);
+        } catch (Exception e) {
+            Log.w(TAG, "Override de navegadores inválido: " + e.getMessage());
+            return base;
+        }
+    }
+
+    /** Aceita {"browsers": [...]} ou diretamente o array. */
+    static Map<String, BrowserProfile> parse(String json) throws Exception {
+        String trimmed = json.trim();
+        JSONArray arr = trimmed.startsWith("[")
+                ? new JSONArray(trimmed)
+                : new JSONObject(trimmed).getJSONArray("browsers");
+        Map<String, BrowserProfile> out = new HashMap<>();
+        for (int i = 0; i < arr.length(); i++) {
+            JSONObject o = arr.getJSONObject(i);
+            String pkg = o.getString("package").trim();
+            if (pkg.isEmpty()) continue;
+            JSONArray ids = o.optJSONArray("urlBarIds");
+            String[] urlBarIds = new String[ids == null ? 0 : ids.length()];
+            for (int j = 0; j < urlBarIds.length; j++) {
+                String id = ids.getString(j).trim();
+                urlBarIds[j] = id.contains(":id/") ? id : pkg + ":id/" + id;
+            }
+            JSONArray prefixes = o.optJSONArray("stripPrefixes");
+            String[] stripPrefixes = new String[prefixes == null ? 0 : prefixes.length()];
+            for (int j = 0; j < stripPrefixes.length; j++) stripPrefixes[j] = prefixes.getString(j);
+            out.put(pkg, new BrowserProfile(pkg, urlBarIds,
+                    o.optBoolean("bareHost", false),
+                    o.optBoolean("textFallback", true),
+                    stripPrefixes));
+        }
+        return out;
+    }
+}
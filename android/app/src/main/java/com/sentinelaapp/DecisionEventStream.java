@@ -0,0 +1,137 @@
+package com.sentinelaapp;
+
+import android.os.Handler;
+
+import com.facebook.react.bridge.Arguments;
+import com.facebook.react.bridge.ReactContext;
+import com.facebook.react.bridge.WritableArray;
+import com.facebook.react.bridge.WritableMap;
+import com.facebook.react.modules.core.DeviceEventManagerModule;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Decisões do DecisionLog entregues ao JS em lotes (evento EVENT), para o alerta em tempo
+ * real encaminhar bloqueios sem acordar a thread do JS a cada decisão. Um lote sai a cada
+ * FLUSH_INTERVAL_MS ou ao juntar FLUSH_EVENTS decisões, como um array plano de STRIDE
+ * campos por decisão: seq, time, rule, blocked, packageName, detail, latencyMs.
+ * Backpressure: sem contexto React ativo ou sem listener no JS não há timer nem payload; as
+ * decisões ficam num buffer de MAX_PENDING e as mais antigas são descartadas (contadas em
+ * dropped). O JS recupera a lacuna pelo AppBlockModule.getDecisions, a partir do seq.
+ * Todo o estado do buffer é da thread do DecisionLog.
+ */
+final class DecisionEventStream {
+    static final String EVENT = "sentinela.decisions";
+    static final int STRIDE = 7;
+    static final long FLUSH_INTERVAL_MS = 500L;
+    static final int FLUSH_EVENTS = 32;
+    static final int MAX_PENDING = 256;
+
+    private final Handler handler;
+    private final Runnable flush = this::flush;
+    private volatile ReactContext reactContext;
+    private final AtomicInteger listeners = new AtomicInteger();
+
+    // Buffer circular em arrays paralelos; só na thread do DecisionLog.
+    private final long[] seqs = new long[MAX_PENDING];
+    private final long[] times = new long[MAX_PENDING];
+    private final byte[] rules = new byte[MAX_PENDING];
+    private final boolean[] blocked = new boolean[MAX_PENDING];
+    private final String[] packages = new String[MAX_PENDING];
+    private final String[] details = new String[MAX_PENDING];
+    private final int[] latencies = new int[MAX_PENDING];
+    private int head;
+    private int size;
+    private long dropped;
+    private boolean flushScheduled;
+
+    DecisionEventStream(Handler handler) {
+        this.handler = handler;
+    }
+
+    /** Contexto do AppBlockModule atual (um reload do JS cria outro). */
+    void attach(ReactContext context) {
+        reactContext = context;
+        handler.post(flush);
+    }
+
+    /** O contexto foi destruído: os listeners do JS foram junto. */
+    void detach(ReactContext context) {
+        if (reactContext != context) return;
+        reactContext = null;
+        listeners.set(0);
+    }
+
+    void addListener() {
+        if (listeners.incrementAndGet() == 1) handler.post(flush);
+    }
+
+    void removeListeners(int count) {
+        listeners.updateAndGet(n -> Math.max(0, n - count));
+    }
+
+    /** Chamado pelo DecisionLog depois de gravar a decisão. */
+    void onDecision(long seq, long timeMs, int rule, boolean wasBlocked, String packageName, String detail,
+                    int latencyMicros) {
+        if (size == MAX_PENDING) {
+            packages[head] = null;
+            details[head] = null;
+            head = (head + 1) % MAX_PENDING;
+            size--;
+            dropped++;
+        }
+        int i = (head + size) % MAX_PENDING;
+        seqs[i] = seq;
+        times[i] = timeMs;
+        rules[i] = (byte) rule;
+        blocked[i] = wasBlocked;
+        packages[i] = packageName;
+        details[i] = detail;
+        latencies[i] = latencyMicros;
+        size++;
+
+        if (!isLive(reactContext)) return;
+        if (size >= FLUSH_EVENTS) {
+            flush();
+        } else if (!flushScheduled) {
+            flushScheduled = true;
+            handler.postDelayed(flush, FLUSH_INTERVAL_MS);
+        }
+    }
+
+    private boolean isLive(ReactContext context) {
+        return context != null && listeners.get() > 0 && context.hasActiveReactInstance();
+    }
+
+    private void flush() {
+        handler.removeCallbacks(flush);
+        flushScheduled = false;
+        ReactContext context = reactContext;
+        if (size == 0 || !isLive(context)) return;
+        WritableArray data = Arguments.createArray();
+        for (int n = 0; n < size; n++) {
+            int i = (head + n) % MAX_PENDING;
+            data.pushDouble(seqs[i]);
+            data.pushDouble(times[i]);
+            data.pushString(EngineRules.name(rules[i]));
+            data.pushBoolean(blocked[i]);
+            data.pushString(packages[i]);
+            data.pushString(details[i]);
+            data.pushDouble(latencies[i] / 1000.0);
+            packages[i] = null;
+            details[i] = null;
+        }
+        WritableMap batch = Arguments.createMap();
+        batch.putInt("stride", STRIDE);
+        batch.putArray("data", data);
+        batch.putDouble("dropped", dropped);
+        head = 0;
+        size = 0;
+        dropped = 0;
+        try {
+            context.getJSModule(DeviceEventManagerModule.RCTDeviceEventEmitter.class).emit(EVENT, batch);
+        } catch (RuntimeException ignored) {
+            // Contexto destruído entre isLive e o emit: o lote se perde, como no descarte.
+        }
+    }
+}
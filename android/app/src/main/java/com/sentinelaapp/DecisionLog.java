@@ -0,0 +1,381 @@
+package com.sentinelaapp;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Process;
+import android.util.Log;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Consumer;
+
+/**
+ * Log binário das decisões do motor (bloqueios e liberações por exceção), para a visão
+ * "o que foi bloqueado hoje" sem Log.i no caminho quente. Registros de tamanho fixo num
+ * anel mapeado em memória (decisions.log): o registro de número seq fica no slot
+ * seq % CAPACITY e o anel sobrescreve os mais antigos, então o arquivo nunca passa de
+ * HEADER_SIZE + CAPACITY * RECORD_SIZE. Pacotes e domínios viram ids de uma tabela de
+ * strings só de acréscimo (decisions.str); quando ela chega a MAX_STRINGS é reescrita só com
+ * as strings ainda referenciadas pelo anel (rotação), numa nova geração.
+ * Quem registra só captura os valores e posta: o arquivo tem um único escritor, a thread do
+ * log, que grava sem lock; as leituras do bridge e o {@link DecisionEventStream} passam pela
+ * mesma thread.
+ */
+final class DecisionLog {
+    private static final String TAG = "SentinelaDecisions";
+    static final String FILE_NAME = "decisions.log";
+    static final String STRINGS_FILE_NAME = "decisions.str";
+
+    static final int CAPACITY = 8_192;
+    static final int RECORD_SIZE = 32;
+    static final int HEADER_SIZE = 64;
+    /** Cada registro referencia até 2 strings: acima de 2 * CAPACITY a rotação sempre libera espaço. */
+    static final int MAX_STRINGS = 2 * CAPACITY + 1_024;
+    static final int MAX_STRING_CHARS = 256;
+    /** Liberação igual à anterior (regra, pacote, detalhe) dentro deste intervalo não é gravada. */
+    static final long ALLOW_DEDUP_MS = 60_000L;
+    private static final int NO_STRING = -1;
+
+    private static final int MAGIC = 0x53444c32; // "SDL2" (SDL1 não tinha R_FLAGS)
+    private static final int STRINGS_MAGIC = 0x53445331; // "SDS1"
+    private static final int H_MAGIC = 0;
+    private static final int H_CAPACITY = 4;
+    private static final int H_RECORD_SIZE = 8;
+    private static final int H_GENERATION = 12;
+    private static final int H_NEXT_SEQ = 16;
+    /** Registros abaixo deste seq foram descartados (log reiniciado). */
+    private static final int H_FLOOR_SEQ = 24;
+
+    private static final int R_SEQ = 0;
+    private static final int R_TIME = 8;
+    private static final int R_PACKAGE = 16;
+    private static final int R_DETAIL = 20;
+    private static final int R_LATENCY = 24;
+    /** Id do EngineRules. */
+    private static final int R_RULE = 28;
+    private static final int R_FLAGS = 29;
+    private static final int FLAG_BLOCKED = 1;
+    private static final int[] STRING_FIELDS = {R_PACKAGE, R_DETAIL};
+
+    private static volatile DecisionLog instance;
+
+    /** Uma decisão lida do anel. latencyMicros: do evento à decisão (0 se não houve evento). */
+    static final class Entry {
+        final long seq;
+        final long timeMs;
+        final int rule;
+        final boolean blocked;
+        final String packageName;
+        final String detail;
+        final int latencyMicros;
+
+        Entry(long seq, long timeMs, int rule, boolean blocked, String packageName, String detail,
+              int latencyMicros) {
+            this.seq = seq;
+            this.timeMs = timeMs;
+            this.rule = rule;
+            this.blocked = blocked;
+            this.packageName = packageName;
+            this.detail = detail;
+            this.latencyMicros = latencyMicros;
+        }
+    }
+
+    /** Resultado de {@link #readSince}: nextCursor continua a leitura; truncated = o anel já passou do cursor. */
+    static final class Batch {
+        final List<Entry> entries;
+        final long nextCursor;
+        final long oldestCursor;
+        final boolean truncated;
+
+        Batch(List<Entry> entries, long nextCursor, long oldestCursor, boolean truncated) {
+            this.entries = entries;
+            this.nextCursor = nextCursor;
+            this.oldestCursor = oldestCursor;
+            this.truncated = truncated;
+        }
+    }
+
+    private final File file;
+    private final File stringsFile;
+    private final Handler handler;
+    private final DecisionEventStream stream;
+
+    // Estado abaixo: só na thread do log.
+    private MappedByteBuffer buf;
+    private boolean openFailed;
+    private long nextSeq;
+    private long floorSeq;
+    private int generation;
+    private final List<String> strings = new ArrayList<>();
+    private final Map<String, Integer> ids = new HashMap<>();
+    private DataOutputStream stringsOut;
+    private int lastRule = -1;
+    private String lastPackage;
+    private String lastDetail;
+    private long lastTimeMs;
+
+    private DecisionLog(Context context) {
+        file = new File(context.getFilesDir(), FILE_NAME);
+        stringsFile = new File(context.getFilesDir(), STRINGS_FILE_NAME);
+        HandlerThread thread = new HandlerThread(TAG, Process.THREAD_PRIORITY_BACKGROUND);
+        thread.start();
+        handler = new Handler(thread.getLooper());
+        stream = new DecisionEventStream(handler);
+    }
+
+    static DecisionLog get(Context context) {
+        DecisionLog log = instance;
+        if (log != null) return log;
+        synchronized (DecisionLog.class) {
+            if (instance == null) instance = new DecisionLog(context.getApplicationContext());
+            return instance;
+        }
+    }
+
+    /** Lotes de decisões para o JS (AppBlockModule). */
+    DecisionEventStream eventStream() {
+        return stream;
+    }
+
+    /**
+     * Registra uma decisão (rule do EngineRules; blocked = bloqueou, senão foi uma liberação);
+     * só captura a hora e posta para a thread do log. Qualquer thread.
+     */
+    void append(int rule, boolean blocked, String packageName, String detail, long latencyMicros) {
+        long timeMs = System.currentTimeMillis();
+        int latency = (int) Math.min(Integer.MAX_VALUE, Math.max(0L, latencyMicros));
+        handler.post(() -> write(rule, blocked, packageName, detail, timeMs, latency));
+    }
+
+    /** Lê até limit registros a partir de cursor (seq) e entrega o lote na thread do log. */
+    void readSince(long cursor, int limit, Consumer<Batch> callback) {
+        handler.post(() -> callback.accept(read(cursor, limit)));
+    }
+
+    private void write(int rule, boolean blocked, String packageName, String detail, long timeMs, int latency) {
+        if (!ensureOpen()) return;
+        try {
+            // Compara antes de internar: uma liberação repetida não acrescenta strings ao decisions.str.
+            if (!blocked && rule == lastRule && Objects.equals(packageName, lastPackage)
+                    && Objects.equals(detail, lastDetail) && timeMs - lastTimeMs < ALLOW_DEDUP_MS) {
+                return;
+            }
+            lastRule = rule;
+            lastPackage = packageName;
+            lastDetail = detail;
+            lastTimeMs = timeMs;
+            // Rotaciona antes de internar: os dois ids do registro ficam na mesma numeração.
+            if (strings.size() + STRING_FIELDS.length > MAX_STRINGS) rotateStrings();
+            int packageId = intern(packageName);
+            int detailId = intern(detail);
+
+            long seq = nextSeq;
+            int off = slot(seq);
+            buf.putLong(off + R_TIME, timeMs);
+            buf.putInt(off + R_PACKAGE, packageId);
+            buf.putInt(off + R_DETAIL, detailId);
+            buf.putInt(off + R_LATENCY, latency);
+            buf.put(off + R_RULE, (byte) rule);
+            buf.put(off + R_FLAGS, (byte) (blocked ? FLAG_BLOCKED : 0));
+            // seq por último: um registro pela metade (processo morto no meio) não confere na leitura.
+            buf.putLong(off + R_SEQ, seq);
+            nextSeq = seq + 1;
+            buf.putLong(H_NEXT_SEQ, nextSeq);
+            stream.onDecision(seq, timeMs, rule, blocked, packageName, detail, latency);
+        } catch (IOException | RuntimeException e) {
+            Log.w(TAG, "Falha ao gravar decisão: " + e.getMessage());
+        }
+    }
+
+    private Batch read(long cursor, int limit) {
+        if (!ensureOpen()) return new Batch(Collections.emptyList(), cursor, cursor, false);
+        long oldest = oldest();
+        long from = Math.max(cursor, oldest);
+        long to = Math.min(nextSeq, from + Math.max(0, limit));
+        List<Entry> out = new ArrayList<>((int) Math.max(0L, to - from));
+        for (long seq = from; seq < to; seq++) {
+            int off = slot(seq);
+            if (buf.getLong(off + R_SEQ) != seq) continue;
+            out.add(new Entry(seq, buf.getLong(off + R_TIME), buf.get(off + R_RULE),
+                    (buf.get(off + R_FLAGS) & FLAG_BLOCKED) != 0, lookup(buf.getInt(off + R_PACKAGE)), lookup(buf.getInt(off + R_DETAIL)),
+                    buf.getInt(off + R_LATENCY)));
+        }
+        // Cursor à frente do anel (log recriado): to volta para nextSeq e a leitura se realinha.
+        return new Batch(out, to, oldest, cursor < oldest);
+    }
+
+    private long oldest() {
+        return Math.max(floorSeq, nextSeq - CAPACITY);
+    }
+
+    private static int slot(long seq) {
+        return HEADER_SIZE + (int) (seq % CAPACITY) * RECORD_SIZE;
+    }
+
+    private String lookup(int id) {
+        return id >= 0 && id < strings.size() ? strings.get(id) : null;
+    }
+
+    private int intern(String value) throws IOException {
+        if (value == null) return NO_STRING;
+        if (value.length() > MAX_STRING_CHARS) value = value.substring(0, MAX_STRING_CHARS);
+        Integer id = ids.get(value);
+        if (id != null) return id;
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        stringsOut.writeShort(bytes.length);
+        stringsOut.write(bytes);
+        stringsOut.flush();
+        int next = strings.size();
+        strings.add(value);
+        ids.put(value, next);
+        return next;
+    }
+
+    /**
+     * Reescreve a tabela só com as strings que o anel ainda usa e renumera os registros.
+     * Ordem segura contra morte do processo: anel renumerado e com a nova geração gravada
+     * antes do rename; se o rename não acontecer, as gerações não batem e o log recomeça.
+     */
+    private void rotateStrings() throws IOException {
+        long oldest = oldest();
+        int[] remap = new int[strings.size()];
+        Arrays.fill(remap, NO_STRING);
+        List<String> kept = new ArrayList<>();
+        for (long seq = oldest; seq < nextSeq; seq++) {
+            int off = slot(seq);
+            if (buf.getLong(off + R_SEQ) != seq) continue;
+            for (int field : STRING_FIELDS) {
+                int id = buf.getInt(off + field);
+                if (id >= 0 && id < remap.length && remap[id] == NO_STRING) {
+                    remap[id] = kept.size();
+                    kept.add(strings.get(id));
+                }
+            }
+        }
+        int nextGeneration = generation + 1;
+        File temp = new File(stringsFile.getPath() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp)))) {
+            out.writeInt(STRINGS_MAGIC);
+            out.writeInt(nextGeneration);
+            for (String s : kept) {
+                byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+                out.writeShort(bytes.length);
+                out.write(bytes);
+            }
+        }
+        for (long seq = oldest; seq < nextSeq; seq++) {
+            int off = slot(seq);
+            if (buf.getLong(off + R_SEQ) != seq) continue;
+            for (int field : STRING_FIELDS) {
+                int id = buf.getInt(off + field);
+                buf.putInt(off + field, id >= 0 && id < remap.length ? remap[id] : NO_STRING);
+            }
+        }
+        generation = nextGeneration;
+        buf.putInt(H_GENERATION, generation);
+        buf.force();
+        stringsOut.close();
+        if (!temp.renameTo(stringsFile)) throw new IOException("rename " + temp);
+        strings.clear();
+        ids.clear();
+        for (int i = 0; i < kept.size(); i++) {
+            strings.add(kept.get(i));
+            ids.put(kept.get(i), i);
+        }
+        stringsOut = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(stringsFile, true)));
+        Log.i(TAG, "Tabela de strings rotacionada: " + kept.size() + " mantidas");
+    }
+
+    private boolean ensureOpen() {
+        if (buf != null) return true;
+        if (openFailed) return false;
+        try {
+            open();
+            return true;
+        } catch (IOException | RuntimeException e) {
+            openFailed = true;
+            Log.w(TAG, "Log de decisões indisponível: " + e.getMessage());
+            return false;
+        }
+    }
+
+    private void open() throws IOException {
+        long size = HEADER_SIZE + (long) CAPACITY * RECORD_SIZE;
+        boolean fresh = file.length() != size;
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            if (fresh) raf.setLength(size);
+            // O mapeamento continua válido depois de fechar o arquivo.
+            buf = raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, size);
+        }
+        if (fresh || buf.getInt(H_MAGIC) != MAGIC || buf.getInt(H_CAPACITY) != CAPACITY
+                || buf.getInt(H_RECORD_SIZE) != RECORD_SIZE) {
+            for (int i = 0; i < size; i += 8) buf.putLong(i, 0L);
+            buf.putInt(H_MAGIC, MAGIC);
+            buf.putInt(H_CAPACITY, CAPACITY);
+            buf.putInt(H_RECORD_SIZE, RECORD_SIZE);
+        }
+        nextSeq = buf.getLong(H_NEXT_SEQ);
+        floorSeq = buf.getLong(H_FLOOR_SEQ);
+        generation = buf.getInt(H_GENERATION);
+        if (!loadStrings()) {
+            // Tabela ausente ou de outra geração: os ids do anel não valem mais.
+            floorSeq = nextSeq;
+            buf.putLong(H_FLOOR_SEQ, floorSeq);
+            strings.clear();
+            ids.clear();
+            try (DataOutputStream out = new DataOutputStream(new FileOutputStream(stringsFile))) {
+                out.writeInt(STRINGS_MAGIC);
+                out.writeInt(generation);
+            }
+        }
+        stringsOut = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(stringsFile, true)));
+    }
+
+    /** Carrega decisions.str; corta uma string final incompleta. False se não serve para este anel. */
+    private boolean loadStrings() throws IOException {
+        if (!stringsFile.exists()) return false;
+        long good = -1;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(stringsFile)))) {
+            if (in.readInt() != STRINGS_MAGIC || in.readInt() != generation) return false;
+            good = 8;
+            while (true) {
+                int len = in.readUnsignedShort();
+                byte[] bytes = new byte[len];
+                in.readFully(bytes);
+                String value = new String(bytes, StandardCharsets.UTF_8);
+                ids.put(value, strings.size());
+                strings.add(value);
+                good += 2 + len;
+            }
+        } catch (EOFException e) {
+            // Fim do arquivo, talvez no meio da última string (processo morto ao gravar).
+        }
+        if (good < 0) return false;
+        if (stringsFile.length() != good) {
+            try (RandomAccessFile raf = new RandomAccessFile(stringsFile, "rw")) {
+                raf.setLength(good);
+            }
+        }
+        return true;
+    }
+}
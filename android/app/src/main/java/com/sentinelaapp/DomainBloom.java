@@ -0,0 +1,217 @@
+package com.sentinelaapp;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Filtro de Bloom em blocos (split block: 8 palavras de 32 bits por bloco, um bit por palavra)
+ * na frente de uma lista de domínios. A maioria dos hosts visitados não está bloqueada; o
+ * filtro descarta esses casos com uma leitura de 32 bytes por domínio pai, antes de consultar
+ * o DomainTrie/DomainTable.
+ *
+ * Chaves são os domínios com rótulos invertidos (mesmos bytes do PolicyFile). Cada entrada
+ * também insere seus domínios pais com outra semente, o que responde à regra legada
+ * "a lista contém um subdomínio do host" com uma única sonda.
+ *
+ * Gravado como seção SECTION_BLACKLIST_FILTER do policy.bin ([u32 blocos][blocos...]) e lido
+ * em place do buffer mapeado, sem reconstruir no connect. Imutável e thread-safe.
+ */
+final class DomainBloom {
+    private static final int WORDS_PER_BLOCK = 8;
+    private static final int BLOCK_BYTES = WORDS_PER_BLOCK * 4;
+    private static final int BITS_PER_KEY = 10;
+    private static final long SEED_ENTRY = 0L;
+    private static final long SEED_ANCESTOR = 0x9E3779B97F4A7C15L;
+    private static final int[] SALT = {
+            0x47b6137b, 0x44974d91, 0x8824ad5b, 0xa2b7289d, 0x705495c7, 0x2df1424b, 0x9efc4947, 0x5c6bfb31
+    };
+    private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private static final AtomicLong probes = new AtomicLong();
+    private static final AtomicLong negatives = new AtomicLong();
+    private static final AtomicLong falsePositives = new AtomicLong();
+
+    private final ByteBuffer blocks;
+    private final int blockCount;
+
+    private DomainBloom(ByteBuffer blocks, int blockCount) {
+        this.blocks = blocks;
+        this.blockCount = blockCount;
+    }
+
+    /** Filtro gravado na seção, ou null se a seção estiver vazia ou malformada. */
+    static DomainBloom from(PolicyFile.Section section) {
+        ByteBuffer data = section.data.duplicate();
+        if (data.limit() < 4) return null;
+        int count = data.getInt(0);
+        if (count <= 0 || 4L + (long) count * BLOCK_BYTES != data.limit()) return null;
+        data.position(4);
+        return new DomainBloom(data.slice(), count);
+    }
+
+    /**
+     * False quando com certeza nem host[start, end) nem um domínio pai estão na lista
+     * (nem, com matchListedSubdomains, um subdomínio listado do host).
+     */
+    boolean mightMatch(CharSequence host, int start, int end, boolean matchListedSubdomains) {
+        probes.incrementAndGet();
+        if (end > start) {
+            // FNV dos mesmos bytes de DomainTable.encodeLabel, calculado direto dos chars.
+            long hash = FNV_OFFSET;
+            int pos = end;
+            while (pos > start) {
+                int dot = pos - 1;
+                while (dot >= start && host.charAt(dot) != '.') dot--;
+                if (pos != end) hash = fnv(hash, '.');
+                hash = hashLabel(hash, host, dot + 1, pos);
+                if (contains(hash, SEED_ENTRY)) return true;
+                pos = dot;
+            }
+            if (matchListedSubdomains && contains(hash, SEED_ANCESTOR)) return true;
+        }
+        negatives.incrementAndGet();
+        return false;
+    }
+
+    /** O filtro deixou passar e a lista exata disse não. */
+    static void recordFalsePositive() {
+        falsePositives.incrementAndGet();
+    }
+
+    int sizeBytes() {
+        return blockCount * BLOCK_BYTES;
+    }
+
+    static long getProbeCount() {
+        return probes.get();
+    }
+
+    /** Consultas descartadas pelo filtro sem tocar na lista exata. */
+    static long getNegativeCount() {
+        return negatives.get();
+    }
+
+    static long getFalsePositiveCount() {
+        return falsePositives.get();
+    }
+
+    private static long fnv(long hash, int b) {
+        return (hash ^ (b & 0xFF)) * FNV_PRIME;
+    }
+
+    /** Soma ao hash os bytes UTF-8 de host[start, end), com ASCII em minúsculas. */
+    private static long hashLabel(long hash, CharSequence host, int start, int end) {
+        for (int i = start; i < end; i++) {
+            char c = host.charAt(i);
+            if (c < 0x80) {
+                if (c >= 'A' && c <= 'Z') c = (char) (c + ('a' - 'A'));
+                hash = fnv(hash, c);
+            } else if (c < 0x800) {
+                hash = fnv(hash, 0xC0 | (c >> 6));
+                hash = fnv(hash, 0x80 | (c & 0x3F));
+            } else if (Character.isHighSurrogate(c) && i + 1 < end && Character.isLowSurrogate(host.charAt(i + 1))) {
+                int cp = Character.toCodePoint(c, host.charAt(++i));
+                hash = fnv(hash, 0xF0 | (cp >> 18));
+                hash = fnv(hash, 0x80 | ((cp >> 12) & 0x3F));
+                hash = fnv(hash, 0x80 | ((cp >> 6) & 0x3F));
+                hash = fnv(hash, 0x80 | (cp & 0x3F));
+            } else {
+                hash = fnv(hash, 0xE0 | (c >> 12));
+                hash = fnv(hash, 0x80 | ((c >> 6) & 0x3F));
+                hash = fnv(hash, 0x80 | (c & 0x3F));
+            }
+        }
+        return hash;
+    }
+
+    private boolean contains(long fnv, long seed) {
+        long h = mix(fnv ^ seed);
+        int block = (int) (((h >>> 32) * blockCount) >>> 32);
+        int base = block * BLOCK_BYTES;
+        int x = (int) h;
+        for (int i = 0; i < WORDS_PER_BLOCK; i++) {
+            int bit = (x * SALT[i]) >>> 27;
+            if ((blocks.getInt(base + i * 4) & (1 << bit)) == 0) return false;
+        }
+        return true;
+    }
+
+    private static long mix(long h) {
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    /** A lista exata atrás do filtro: só é consultada quando o filtro não descarta o host. */
+    static final class Filtered implements DomainSet {
+        private final DomainBloom filter;
+        private final DomainSet exact;
+
+        Filtered(DomainBloom filter, DomainSet exact) {
+            this.filter = filter;
+            this.exact = exact;
+        }
+
+        @Override
+        public boolean matches(CharSequence host, int start, int end, boolean matchListedSubdomains) {
+            if (!filter.mightMatch(host, start, end, matchListedSubdomains)) return false;
+            if (exact.matches(host, start, end, matchListedSubdomains)) return true;
+            recordFalsePositive();
+            return false;
+        }
+
+        @Override
+        public int size() {
+            return exact.size();
+        }
+    }
+
+    /** Monta o filtro a partir dos registros (rótulos invertidos) de uma seção de domínios. */
+    static final class Builder {
+        private final int[] words;
+        private final int blockCount;
+
+        Builder(int expectedEntries) {
+            // Cada entrada soma até outra chave (domínios pais), daí o fator 2.
+            long bits = Math.max(1L, (long) expectedEntries) * 2 * BITS_PER_KEY;
+            blockCount = (int) Math.max(1L, Math.min((bits + 255) / 256, Integer.MAX_VALUE / BLOCK_BYTES));
+            words = new int[blockCount * WORDS_PER_BLOCK];
+        }
+
+        void add(byte[] record, int offset, int length) {
+            long hash = FNV_OFFSET;
+            for (int i = 0; i < length; i++) {
+                byte b = record[offset + i];
+                if (b == '.') put(hash, SEED_ANCESTOR);
+                hash = fnv(hash, b);
+            }
+            put(hash, SEED_ENTRY);
+        }
+
+        void add(byte[] record) {
+            add(record, 0, record.length);
+        }
+
+        /** Conteúdo da seção: [u32 blocos][palavras big-endian]. */
+        byte[] toBytes() {
+            ByteBuffer out = ByteBuffer.allocate(4 + words.length * 4);
+            out.putInt(blockCount);
+            for (int w : words) out.putInt(w);
+            return out.array();
+        }
+
+        private void put(long fnv, long seed) {
+            long h = mix(fnv ^ seed);
+            int block = (int) (((h >>> 32) * blockCount) >>> 32);
+            int base = block * WORDS_PER_BLOCK;
+            int x = (int) h;
+            for (int i = 0; i < WORDS_PER_BLOCK; i++) {
+                words[base + i] |= 1 << ((x * SALT[i]) >>> 27);
+            }
+        }
+    }
+}
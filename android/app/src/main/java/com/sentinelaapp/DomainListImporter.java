@@ -0,0 +1,326 @@
+package com.sentinelaapp;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Importa uma lista de domínios (formato hosts, "||dominio^" ou um domínio por linha) direto
+ * para o formato do PolicyFile, sem passar pelo bridge nem montar a lista inteira em memória.
+ * Ordenação externa: a leitura acumula no máximo CHUNK_BYTES de registros, ordena, remove
+ * duplicados e grava um run temporário; depois os runs (e, se pedido, a seção atual) são
+ * mesclados em streaming no writer. Uma instância por importação; chame {@link #close()}.
+ */
+final class DomainListImporter {
+    static final int CHUNK_BYTES = 4 * 1024 * 1024;
+    private static final int PROGRESS_EVERY_BYTES = 512 * 1024;
+    private static final int MAX_DOMAIN_LENGTH = 253;
+
+    /** Progresso para a UI; phase é "reading", "merging" ou "done". */
+    interface ProgressListener {
+        void onProgress(String phase, long bytesRead, long totalBytes, long entries);
+    }
+
+    private final File tempDir;
+    private final ProgressListener listener;
+    private final int maxChunkBytes;
+    private final List<File> runs = new ArrayList<>();
+    private final List<byte[]> chunk = new ArrayList<>();
+    private long chunkBytes;
+
+    private long bytesRead;
+    private long totalBytes = -1;
+    /** Domínios válidos lidos (com repetições). */
+    private long entries;
+    /** Soma dos registros gravados nos runs (limite superior do resultado). */
+    private long runRecords;
+
+    DomainListImporter(File tempDir, ProgressListener listener) {
+        this(tempDir, listener, CHUNK_BYTES);
+    }
+
+    /** maxChunkBytes menor que CHUNK_BYTES força vários runs (testes). */
+    DomainListImporter(File tempDir, ProgressListener listener, int maxChunkBytes) {
+        this.tempDir = tempDir;
+        this.listener = listener;
+        this.maxChunkBytes = maxChunkBytes;
+    }
+
+    /** Lê toda a entrada e grava os runs ordenados. totalBytes pode ser -1 (desconhecido). */
+    void read(InputStream source, long totalBytes) throws IOException {
+        this.totalBytes = totalBytes;
+        CountingInputStream counting = new CountingInputStream(source);
+        BufferedReader reader = new BufferedReader(new InputStreamReader(counting, StandardCharsets.UTF_8), 64 * 1024);
+        List<String> tokens = new ArrayList<>();
+        long nextReport = PROGRESS_EVERY_BYTES;
+        String line;
+        while ((line = reader.readLine()) != null) {
+            tokens.clear();
+            parseLine(line, tokens);
+            for (String token : tokens) {
+                String domain = normalize(token);
+                if (domain == null) continue;
+                byte[] record = PolicyFile.reverseLabels(domain).getBytes(StandardCharsets.UTF_8);
+                chunk.add(record);
+                chunkBytes += record.length + 16;
+                entries++;
+                if (chunkBytes >= maxChunkBytes) flushChunk();
+            }
+            bytesRead = counting.count;
+            if (bytesRead >= nextReport) {
+                nextReport = bytesRead + PROGRESS_EVERY_BYTES;
+                listener.onProgress("reading", bytesRead, totalBytes, entries);
+            }
+        }
+        flushChunk();
+        listener.onProgress("reading", bytesRead, totalBytes, entries);
+    }
+
+    /** Limite superior de registros do resultado da mescla. */
+    int maxRecords(PolicyFile.Section existing) {
+        long max = runRecords + (existing == null ? 0 : existing.count);
+        return (int) Math.min(max, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Mescla os runs (e existing, se não for null) em ordem no writer, sem duplicados.
+     * Retorna quantos registros foram gravados.
+     */
+    int merge(PolicyFile.Section existing, PolicyFile.Writer writer, DomainBloom.Builder bloom) throws IOException {
+        listener.onProgress("merging", bytesRead, totalBytes, entries);
+        PriorityQueue<Cursor> queue = new PriorityQueue<>(Math.max(1, runs.size() + 1),
+                (a, b) -> compare(a.record, a.length, b.record, b.length));
+        List<Cursor> opened = new ArrayList<>();
+        try {
+            for (File run : runs) {
+                Cursor c = new StreamCursor(run);
+                opened.add(c);
+                if (c.next()) queue.add(c);
+            }
+            if (existing != null && !existing.isEmpty()) {
+                Cursor c = new SectionCursor(existing);
+                if (c.next()) queue.add(c);
+            }
+            byte[] last = new byte[PolicyFile.MAX_RECORD_LENGTH];
+            int lastLength = -1;
+            int written = 0;
+            while (!queue.isEmpty()) {
+                Cursor c = queue.poll();
+                if (lastLength < 0 || compare(last, lastLength, c.record, c.length) != 0) {
+                    writer.append(c.record, 0, c.length);
+                    if (bloom != null) bloom.add(c.record, 0, c.length);
+                    System.arraycopy(c.record, 0, last, 0, c.length);
+                    lastLength = c.length;
+                    written++;
+                }
+                if (c.next()) queue.add(c);
+            }
+            listener.onProgress("done", bytesRead, totalBytes, written);
+            return written;
+        } finally {
+            for (Cursor c : opened) c.close();
+        }
+    }
+
+    /** Apaga os runs temporários. */
+    void close() {
+        for (File run : runs) {
+            //noinspection ResultOfMethodCallIgnored
+            run.delete();
+        }
+        runs.clear();
+        chunk.clear();
+    }
+
+    private void flushChunk() throws IOException {
+        if (chunk.isEmpty()) return;
+        Collections.sort(chunk, PolicyFile::compareUnsigned);
+        File run = File.createTempFile("import", ".run", tempDir);
+        runs.add(run);
+        try (OutputStream out = new BufferedOutputStream(new FileOutputStream(run), 64 * 1024)) {
+            byte[] prev = null;
+            for (byte[] record : chunk) {
+                if (prev != null && PolicyFile.compareUnsigned(prev, record) == 0) continue;
+                out.write(record.length >>> 8);
+                out.write(record.length);
+                out.write(record);
+                runRecords++;
+                prev = record;
+            }
+        }
+        chunk.clear();
+        chunkBytes = 0;
+    }
+
+    // --- Parsing ---
+
+    /**
+     * Tokens de domínio de uma linha: ignora comentários (#, !), o IP inicial do formato hosts
+     * ("0.0.0.0 ads.example.com") e o "||...^" do formato de bloqueadores de anúncio.
+     */
+    static void parseLine(String line, List<String> out) {
+        int end = line.length();
+        int start = 0;
+        while (start < end && Character.isWhitespace(line.charAt(start))) start++;
+        if (start < end && line.charAt(start) == '!') return;
+        boolean first = true;
+        int i = start;
+        while (i < end) {
+            char c = line.charAt(i);
+            if (c == '#') break;
+            if (Character.isWhitespace(c)) {
+                i++;
+                continue;
+            }
+            int tokenStart = i;
+            while (i < end && !Character.isWhitespace(line.charAt(i)) && line.charAt(i) != '#') i++;
+            String token = line.substring(tokenStart, i);
+            if (!(first && looksLikeAddress(token))) out.add(token);
+            first = false;
+        }
+    }
+
+    /** Domínio normalizado, ou null para tokens que não são domínios (localhost, IPs, URLs). */
+    static String normalize(String token) {
+        String s = token;
+        if (s.startsWith("||")) s = s.substring(2);
+        int caret = s.indexOf('^');
+        if (caret >= 0) s = s.substring(0, caret);
+        if (s.startsWith("*.")) s = s.substring(2);
+        while (s.startsWith(".")) s = s.substring(1);
+        s = PolicyFile.normalizeDomain(s);
+        if (s == null || s.length() > MAX_DOMAIN_LENGTH || looksLikeAddress(s)) return null;
+        boolean dot = false;
+        char prev = '.';
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c == '.') {
+                if (prev == '.') return null;
+                dot = true;
+            } else if (!((c >= 'a' && c <= 'z') || (c >= '0' && c <= '9') || c == '-' || c == '_' || c >= 0x80)) {
+                return null;
+            }
+            prev = c;
+        }
+        // "localhost", "broadcasthost" e afins não têm ponto.
+        return dot ? s : null;
+    }
+
+    /** IPv4 ou IPv6 (só dígitos/pontos, ou contém ':'). */
+    private static boolean looksLikeAddress(String token) {
+        if (token.indexOf(':') >= 0) return true;
+        for (int i = 0; i < token.length(); i++) {
+            char c = token.charAt(i);
+            if (c != '.' && (c < '0' || c > '9')) return false;
+        }
+        return !token.isEmpty();
+    }
+
+    private static int compare(byte[] a, int aLen, byte[] b, int bLen) {
+        int n = Math.min(aLen, bLen);
+        for (int i = 0; i < n; i++) {
+            int d = (a[i] & 0xFF) - (b[i] & 0xFF);
+            if (d != 0) return d;
+        }
+        return aLen - bLen;
+    }
+
+    // --- Cursores da mescla ---
+
+    private abstract static class Cursor {
+        final byte[] record = new byte[PolicyFile.MAX_RECORD_LENGTH];
+        int length;
+
+        abstract boolean next() throws IOException;
+
+        void close() {}
+    }
+
+    /** Run temporário: registros [u16 tamanho][bytes]. */
+    private static final class StreamCursor extends Cursor {
+        private final DataInputStream in;
+
+        StreamCursor(File file) throws IOException {
+            in = new DataInputStream(new BufferedInputStream(new FileInputStream(file), 64 * 1024));
+        }
+
+        @Override
+        boolean next() throws IOException {
+            int len;
+            try {
+                len = in.readUnsignedShort();
+            } catch (EOFException e) {
+                return false;
+            }
+            in.readFully(record, 0, len);
+            length = len;
+            return true;
+        }
+
+        @Override
+        void close() {
+            try {
+                in.close();
+            } catch (IOException ignored) {}
+        }
+    }
+
+    /** Seção atual do policy.bin, lida do buffer mapeado. */
+    private static final class SectionCursor extends Cursor {
+        private final ByteBuffer data;
+        private int pos;
+
+        SectionCursor(PolicyFile.Section section) {
+            data = section.data.duplicate();
+        }
+
+        @Override
+        boolean next() {
+            if (pos + 2 > data.limit()) return false;
+            int len = data.getShort(pos) & 0xFFFF;
+            if (pos + 2 + len > data.limit()) return false;
+            for (int i = 0; i < len; i++) record[i] = data.get(pos + 2 + i);
+            pos += 2 + len;
+            length = len;
+            return true;
+        }
+    }
+
+    private static final class CountingInputStream extends FilterInputStream {
+        long count;
+
+        CountingInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) count++;
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = super.read(b, off, len);
+            if (n > 0) count += n;
+            return n;
+        }
+    }
+}
@@ -0,0 +1,15 @@
+package com.sentinelaapp;
+
+/**
+ * Lista de domínios consultada pelo host de uma URL: {@link DomainTrie} (em heap, listas
+ * pequenas) ou {@link DomainTable} (mapeada do policy.bin, listas muito grandes).
+ */
+interface DomainSet {
+    /**
+     * True se host[start, end) ou algum domínio pai dele está na lista; com
+     * matchListedSubdomains, também quando a lista contém um subdomínio do host.
+     */
+    boolean matches(CharSequence host, int start, int end, boolean matchListedSubdomains);
+
+    int size();
+}
@@ -0,0 +1,176 @@
+package com.sentinelaapp;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Tabela ordenada de domínios consultada direto no buffer mapeado de uma seção do
+ * {@link PolicyFile}, para listas grandes demais para um DomainTrie em heap (categorias
+ * com milhões de entradas). Em heap fica só um índice esparso: o offset de um registro a
+ * cada INDEX_STRIDE. A consulta é busca binária nesse índice seguida de no máximo
+ * INDEX_STRIDE comparações de bytes no próprio buffer, sem decodificar Strings.
+ * Imutável e thread-safe.
+ */
+final class DomainTable implements DomainSet {
+    static final int INDEX_STRIDE = 32;
+
+    static final DomainTable EMPTY = new DomainTable(new PolicyFile.Section(0, 0, ByteBuffer.allocate(0)));
+
+    /** Chave da consulta por thread: matches roda no worker a cada URL checada. */
+    private static final ThreadLocal<byte[]> KEY_BUFFER = ThreadLocal.withInitial(() -> new byte[256]);
+
+    private final ByteBuffer data;
+    private final int count;
+    /** Offset do registro i * INDEX_STRIDE. */
+    private final int[] blockOffsets;
+
+    DomainTable(PolicyFile.Section section) {
+        this.data = section.data.duplicate();
+        int blocks = (section.count + INDEX_STRIDE - 1) / INDEX_STRIDE;
+        int[] offsets = new int[blocks];
+        int pos = 0;
+        int records = 0;
+        int limit = data.limit();
+        while (records < section.count && pos + 2 <= limit) {
+            if (records % INDEX_STRIDE == 0) offsets[records / INDEX_STRIDE] = pos;
+            pos += 2 + (data.getShort(pos) & 0xFFFF);
+            records++;
+        }
+        this.count = records;
+        this.blockOffsets = records == section.count ? offsets
+                : Arrays.copyOf(offsets, (records + INDEX_STRIDE - 1) / INDEX_STRIDE);
+    }
+
+    @Override
+    public int size() {
+        return count;
+    }
+
+    /** Bytes em heap usados pelo índice (diagnóstico). */
+    int indexBytes() {
+        return blockOffsets.length * 4;
+    }
+
+    @Override
+    public boolean matches(CharSequence host, int start, int end, boolean matchListedSubdomains) {
+        if (count == 0 || end <= start) return false;
+        // Host com rótulos invertidos em UTF-8 ("ads.example.com" -> "com.example.ads"), mais um
+        // byte para o '.' da busca por subdomínios listados.
+        byte[] key = keyBuffer((end - start) * 3 + 1);
+        int len = 0;
+        int pos = end;
+        while (pos > start) {
+            int dot = pos - 1;
+            while (dot >= start && host.charAt(dot) != '.') dot--;
+            if (len > 0) key[len++] = '.';
+            len = encodeLabel(host, dot + 1, pos, key, len);
+            // Cada prefixo que termina num rótulo é o host ou um domínio pai.
+            if (contains(key, len)) return true;
+            pos = dot;
+        }
+        if (!matchListedSubdomains) return false;
+        key[len] = '.';
+        return hasPrefix(key, len + 1);
+    }
+
+    /** Buffer de chave da thread atual, com pelo menos size bytes (só cresce). */
+    private static byte[] keyBuffer(int size) {
+        byte[] key = KEY_BUFFER.get();
+        if (key.length < size) {
+            key = new byte[Math.max(size, key.length * 2)];
+            KEY_BUFFER.set(key);
+        }
+        return key;
+    }
+
+    /** Registro exatamente igual a key[0, len). */
+    boolean contains(byte[] key, int len) {
+        int block = floorBlock(key, len);
+        if (block < 0) return false;
+        int off = blockOffsets[block];
+        int n = Math.min(INDEX_STRIDE, count - block * INDEX_STRIDE);
+        for (int i = 0; i < n; i++) {
+            int cmp = compareRecord(off, key, len);
+            if (cmp == 0) return true;
+            if (cmp > 0) return false;
+            off += 2 + (data.getShort(off) & 0xFFFF);
+        }
+        return false;
+    }
+
+    /** Algum registro começa com key[0, len) (registros com o mesmo prefixo são contíguos). */
+    boolean hasPrefix(byte[] key, int len) {
+        int block = Math.max(0, floorBlock(key, len));
+        int off = blockOffsets[block];
+        // O primeiro registro >= key está neste bloco ou é o primeiro do próximo.
+        int n = Math.min(INDEX_STRIDE + 1, count - block * INDEX_STRIDE);
+        for (int i = 0; i < n; i++) {
+            if (compareRecord(off, key, len) >= 0) return startsWith(off, key, len);
+            off += 2 + (data.getShort(off) & 0xFFFF);
+        }
+        return false;
+    }
+
+    /** Último bloco cujo primeiro registro é <= key, ou -1. */
+    private int floorBlock(byte[] key, int len) {
+        int lo = 0;
+        int hi = blockOffsets.length - 1;
+        int found = -1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            if (compareRecord(blockOffsets[mid], key, len) <= 0) {
+                found = mid;
+                lo = mid + 1;
+            } else {
+                hi = mid - 1;
+            }
+        }
+        return found;
+    }
+
+    /** Sinal de (registro em off) - key, comparando bytes sem sinal. */
+    private int compareRecord(int off, byte[] key, int len) {
+        int recordLen = data.getShort(off) & 0xFFFF;
+        int base = off + 2;
+        int n = Math.min(recordLen, len);
+        for (int i = 0; i < n; i++) {
+            int d = (data.get(base + i) & 0xFF) - (key[i] & 0xFF);
+            if (d != 0) return d;
+        }
+        return recordLen - len;
+    }
+
+    private boolean startsWith(int off, byte[] key, int len) {
+        if ((data.getShort(off) & 0xFFFF) < len) return false;
+        int base = off + 2;
+        for (int i = 0; i < len; i++) {
+            if (data.get(base + i) != key[i]) return false;
+        }
+        return true;
+    }
+
+    /** Codifica host[start, end) em UTF-8 (ASCII em minúsculas, como o DomainTrie compara). */
+    static int encodeLabel(CharSequence host, int start, int end, byte[] out, int pos) {
+        for (int i = start; i < end; i++) {
+            char c = host.charAt(i);
+            if (c < 0x80) {
+                if (c >= 'A' && c <= 'Z') c = (char) (c + ('a' - 'A'));
+                out[pos++] = (byte) c;
+            } else if (c < 0x800) {
+                out[pos++] = (byte) (0xC0 | (c >> 6));
+                out[pos++] = (byte) (0x80 | (c & 0x3F));
+            } else if (Character.isHighSurrogate(c) && i + 1 < end && Character.isLowSurrogate(host.charAt(i + 1))) {
+                int cp = Character.toCodePoint(c, host.charAt(++i));
+                out[pos++] = (byte) (0xF0 | (cp >> 18));
+                out[pos++] = (byte) (0x80 | ((cp >> 12) & 0x3F));
+                out[pos++] = (byte) (0x80 | ((cp >> 6) & 0x3F));
+                out[pos++] = (byte) (0x80 | (cp & 0x3F));
+            } else {
+                out[pos++] = (byte) (0xE0 | (c >> 12));
+                out[pos++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+                out[pos++] = (byte) (0x80 | (c & 0x3F));
+            }
+        }
+        return pos;
+    }
+}
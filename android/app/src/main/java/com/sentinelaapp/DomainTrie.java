@@ -0,0 +1,192 @@
+package com.sentinelaapp;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Trie compacto de domínios indexado pelos rótulos em ordem reversa (com → example → www).
+ * Os nós ficam em arrays (ordem BFS, filhos contíguos e ordenados), então a consulta
+ * "o host ou algum domínio pai está na lista" custa O(rótulos) sem alocar nada.
+ */
+final class DomainTrie implements DomainSet {
+    private static final byte FLAG_TERMINAL = 1;
+    /** Algum nó abaixo (estritamente) é terminal. */
+    private static final byte FLAG_TERMINAL_BELOW = 2;
+
+    static final DomainTrie EMPTY = build(new ArrayList<>());
+
+    /** Filhos do nó i ocupam os índices [childStart[i], childStart[i + 1]). */
+    private final int[] childStart;
+    private final int[] labelOffset;
+    private final int[] labelLength;
+    private final byte[] flags;
+    private final char[] labels;
+    private final int size;
+
+    private DomainTrie(int[] childStart, int[] labelOffset, int[] labelLength, byte[] flags,
+                       char[] labels, int size) {
+        this.childStart = childStart;
+        this.labelOffset = labelOffset;
+        this.labelLength = labelLength;
+        this.flags = flags;
+        this.labels = labels;
+        this.size = size;
+    }
+
+    /** Quantidade de domínios distintos na lista. */
+    @Override
+    public int size() {
+        return size;
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    boolean matches(CharSequence host, boolean matchListedSubdomains) {
+        return host != null && matches(host, 0, host.length(), matchListedSubdomains);
+    }
+
+    /**
+     * True se host[start, end) ou algum domínio pai dele está na lista.
+     * Com matchListedSubdomains, também aceita quando a lista contém um subdomínio do host
+     * (regra legada do shouldBlockUrl: bl.endsWith("." + domain)).
+     * Letras ASCII do host são comparadas sem diferenciar maiúsculas.
+     */
+    @Override
+    public boolean matches(CharSequence host, int start, int end, boolean matchListedSubdomains) {
+        if (size == 0 || end <= start) return false;
+        int node = 0;
+        int pos = end;
+        while (true) {
+            int dot = pos - 1;
+            while (dot >= start && host.charAt(dot) != '.') dot--;
+            node = findChild(node, host, dot + 1, pos);
+            if (node < 0) return false;
+            if ((flags[node] & FLAG_TERMINAL) != 0) return true;
+            if (dot < start) {
+                return matchListedSubdomains && (flags[node] & FLAG_TERMINAL_BELOW) != 0;
+            }
+            pos = dot;
+        }
+    }
+
+    private int findChild(int node, CharSequence host, int start, int end) {
+        int lo = childStart[node];
+        int hi = childStart[node + 1] - 1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            int cmp = compareLabel(mid, host, start, end);
+            if (cmp < 0) {
+                lo = mid + 1;
+            } else if (cmp > 0) {
+                hi = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -1;
+    }
+
+    private int compareLabel(int node, CharSequence host, int start, int end) {
+        int off = labelOffset[node];
+        int len = labelLength[node];
+        int hostLen = end - start;
+        int n = Math.min(len, hostLen);
+        for (int i = 0; i < n; i++) {
+            char a = labels[off + i];
+            char b = host.charAt(start + i);
+            if (b >= 'A' && b <= 'Z') b = (char) (b + ('a' - 'A'));
+            if (a != b) return a - b;
+        }
+        return len - hostLen;
+    }
+
+    /** Compila a lista; entradas devem estar normalizadas (trim + minúsculas). */
+    static DomainTrie build(Collection<String> domains) {
+        BuildNode root = new BuildNode();
+        int size = 0;
+        for (String domain : domains) {
+            if (domain == null || domain.isEmpty()) continue;
+            BuildNode node = root;
+            int end = domain.length();
+            while (true) {
+                int dot = domain.lastIndexOf('.', end - 1);
+                String label = domain.substring(dot + 1, end);
+                BuildNode child = node.children.get(label);
+                if (child == null) {
+                    child = new BuildNode();
+                    node.children.put(label, child);
+                }
+                node = child;
+                if (dot < 0) break;
+                end = dot;
+            }
+            if (!node.terminal) {
+                node.terminal = true;
+                size++;
+            }
+        }
+        markTerminalBelow(root);
+
+        // Ordem BFS: os filhos de cada nó recebem índices consecutivos.
+        List<BuildNode> order = new ArrayList<>();
+        List<String> nodeLabels = new ArrayList<>();
+        order.add(root);
+        nodeLabels.add("");
+        for (int i = 0; i < order.size(); i++) {
+            for (Map.Entry<String, BuildNode> e : order.get(i).children.entrySet()) {
+                order.add(e.getValue());
+                nodeLabels.add(e.getKey());
+            }
+        }
+
+        int count = order.size();
+        int[] childStart = new int[count + 1];
+        int[] labelOffset = new int[count];
+        int[] labelLength = new int[count];
+        byte[] flags = new byte[count];
+        Map<String, Integer> pooled = new HashMap<>();
+        StringBuilder pool = new StringBuilder();
+        int next = 1;
+        for (int i = 0; i < count; i++) {
+            BuildNode node = order.get(i);
+            childStart[i] = next;
+            next += node.children.size();
+            if (node.terminal) flags[i] |= FLAG_TERMINAL;
+            if (node.terminalBelow) flags[i] |= FLAG_TERMINAL_BELOW;
+            String label = nodeLabels.get(i);
+            Integer off = pooled.get(label);
+            if (off == null) {
+                off = pool.length();
+                pool.append(label);
+                pooled.put(label, off);
+            }
+            labelOffset[i] = off;
+            labelLength[i] = label.length();
+        }
+        childStart[count] = next;
+        char[] labels = new char[pool.length()];
+        pool.getChars(0, pool.length(), labels, 0);
+        return new DomainTrie(childStart, labelOffset, labelLength, flags, labels, size);
+    }
+
+    private static boolean markTerminalBelow(BuildNode node) {
+        boolean below = false;
+        for (BuildNode child : node.children.values()) {
+            if (markTerminalBelow(child) || child.terminal) below = true;
+        }
+        node.terminalBelow = below;
+        return below;
+    }
+
+    private static final class BuildNode {
+        final TreeMap<String, BuildNode> children = new TreeMap<>();
+        boolean terminal;
+        boolean terminalBelow;
+    }
+}
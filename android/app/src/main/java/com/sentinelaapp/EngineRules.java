@@ -0,0 +1,42 @@
+package com.sentinelaapp;
+
+/**
+ * Regras do motor: um id por regra, compartilhado pelos contadores do EngineStats e pelo
+ * DecisionLog, e o nome exposto ao JS. Cobre bloqueios e liberações por exceção; se a decisão
+ * bloqueou vai à parte no registro do log, não é deduzido do id. Os ids são gravados no log,
+ * então só se acrescentam regras no fim. Os motivos da tela de bloqueio (BlockOverlay.REASON_*)
+ * são outra numeração; {@link #forReason} faz a conversão.
+ */
+final class EngineRules {
+    static final int APP = 0;
+    static final int DOMAIN = 1;
+    static final int KEYWORD = 2;
+    static final int FORCE = 3;
+    static final int REST = 4;
+    static final int TAMPERING = 5;
+    /** App bloqueado liberado por desbloqueio temporário. */
+    static final int TEMP_UNLOCK = 6;
+    /** URL liberada pela whitelist. */
+    static final int WHITELIST = 7;
+    static final String[] NAMES = {"app", "domain", "keyword", "force", "rest", "tampering",
+            "tempUnlock", "whitelist"};
+
+    private EngineRules() {}
+
+    /** Regra de um motivo da tela de bloqueio. */
+    static int forReason(int reason) {
+        switch (reason) {
+            case BlockOverlay.REASON_APP: return APP;
+            case BlockOverlay.REASON_DOMAIN: return DOMAIN;
+            case BlockOverlay.REASON_KEYWORD: return KEYWORD;
+            case BlockOverlay.REASON_FORCE: return FORCE;
+            case BlockOverlay.REASON_REST: return REST;
+            default: throw new IllegalArgumentException("motivo desconhecido: " + reason);
+        }
+    }
+
+    /** Nome da regra para o JS; "unknown" para ids fora da tabela (ex.: log antigo). */
+    static String name(int rule) {
+        return rule >= 0 && rule < NAMES.length ? NAMES[rule] : "unknown";
+    }
+}
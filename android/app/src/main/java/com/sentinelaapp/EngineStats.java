@@ -0,0 +1,111 @@
+package com.sentinelaapp;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Instrumentação do motor de bloqueio: histogramas de latência por etapa em baldes log2 de
+ * microssegundos e contadores por regra (EngineRules) e por motivo de descarte. Tudo em arrays de long
+ * pré-alocados (AtomicLongArray), então registrar não aloca nem bloqueia; serve tanto à
+ * thread principal quanto ao worker. Lido pelo AppBlockModule.getEngineStats().
+ */
+final class EngineStats {
+    /** Hora do evento (AccessibilityEvent.getEventTime) até o onAccessibilityEvent. */
+    static final int STAGE_DISPATCH = 0;
+    /** getRootInActiveWindow ou refresh do nó da barra em cache. */
+    static final int STAGE_TREE_FETCH = 1;
+    /** Leitura da barra / busca da URL na árvore. */
+    static final int STAGE_URL_EXTRACT = 2;
+    /** Avaliação da URL pela política (cache de veredictos incluído). */
+    static final int STAGE_MATCH = 3;
+    /** Execução do bloqueio (overlay ou HOME + MainActivity). */
+    static final int STAGE_ACTION = 4;
+    /** Hora do evento até o bloqueio executado (bloqueios decididos por um evento, não por rechecagem). */
+    static final int STAGE_END_TO_END = 5;
+    static final String[] STAGE_NAMES = {"dispatch", "treeFetch", "urlExtract", "match", "action", "endToEnd"};
+
+    /** Bloqueio que aconteceria, engolido pelo BLOCK_DEBOUNCE_MS. */
+    static final int DROP_DEBOUNCE = 0;
+    /** App bloqueado liberado por desbloqueio temporário. */
+    static final int DROP_TEMP_UNLOCK = 1;
+    /** Checagem de URL de um navegador que já saiu da frente. */
+    static final int DROP_NOT_FOREGROUND = 2;
+    /** Checagem de URL sem URL encontrada na árvore. */
+    static final int DROP_NO_URL = 3;
+    /** URL liberada pela whitelist (que vence blacklist e keywords). */
+    static final int DROP_WHITELISTED = 4;
+    static final String[] DROP_NAMES = {"debounce", "tempUnlock", "notForeground", "noUrl", "whitelisted"};
+
+    /** Balde b guarda durações em [2^(b-1), 2^b) µs; o último vai até o infinito (~16s+). */
+    static final int BUCKETS = 25;
+
+    private static final AtomicLongArray histograms = new AtomicLongArray(STAGE_NAMES.length * BUCKETS);
+    private static final AtomicLongArray maxMicros = new AtomicLongArray(STAGE_NAMES.length);
+    private static final AtomicLongArray rules = new AtomicLongArray(EngineRules.NAMES.length);
+    private static final AtomicLongArray drops = new AtomicLongArray(DROP_NAMES.length);
+
+    private EngineStats() {}
+
+    /** Registra a duração desde startNanos (System.nanoTime()). */
+    static void recordSince(int stage, long startNanos) {
+        recordMicros(stage, (System.nanoTime() - startNanos) / 1_000L);
+    }
+
+    static void recordMicros(int stage, long micros) {
+        if (micros < 0) micros = 0;
+        int bucket = Math.min(BUCKETS - 1, 64 - Long.numberOfLeadingZeros(micros));
+        histograms.incrementAndGet(stage * BUCKETS + bucket);
+        long max;
+        while (micros > (max = maxMicros.get(stage)) && !maxMicros.compareAndSet(stage, max, micros)) {
+            // Outra thread gravou um máximo no meio; tenta de novo.
+        }
+    }
+
+    static void countRule(int rule) {
+        rules.incrementAndGet(rule);
+    }
+
+    static void countDrop(int reason) {
+        drops.incrementAndGet(reason);
+    }
+
+    /** Cópia dos baldes de uma etapa. */
+    static long[] histogram(int stage) {
+        long[] out = new long[BUCKETS];
+        for (int i = 0; i < BUCKETS; i++) out[i] = histograms.get(stage * BUCKETS + i);
+        return out;
+    }
+
+    static long maxMicros(int stage) {
+        return maxMicros.get(stage);
+    }
+
+    static long ruleCount(int rule) {
+        return rules.get(rule);
+    }
+
+    static long dropCount(int reason) {
+        return drops.get(reason);
+    }
+
+    static long total(long[] histogram) {
+        long n = 0;
+        for (long c : histogram) n += c;
+        return n;
+    }
+
+    /**
+     * Limite superior (µs) do balde onde cai o quantil q (0..1), ou 0 sem amostras. Com baldes
+     * log2 o erro é de no máximo 2x, o bastante para p50/p99 e para ver regressões.
+     */
+    static long percentileMicros(long[] histogram, double q) {
+        long n = total(histogram);
+        if (n == 0) return 0;
+        long rank = (long) Math.ceil(q * n);
+        long seen = 0;
+        for (int b = 0; b < histogram.length; b++) {
+            seen += histogram[b];
+            if (seen >= rank) return b == 0 ? 0 : 1L << b;
+        }
+        return 1L << (histogram.length - 1);
+    }
+}
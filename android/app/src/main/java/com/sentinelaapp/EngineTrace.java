@@ -0,0 +1,90 @@
+package com.sentinelaapp;
+
+import android.os.Build;
+import android.os.SystemClock;
+import android.os.Trace;
+import android.util.Log;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Seções de trace (android.os.Trace) no caminho quente do serviço, para que um trace do
+ * Perfetto/systrace mostre o nosso trabalho ao lado dos frames do navegador. Desligado por
+ * padrão; liga pelo JS (engine_trace_enabled, ver AppBlockModule.setEngineTracing) ou pelo adb:
+ *   adb shell setprop log.tag.SentinelaTrace VERBOSE
+ * (relido a cada RECHECK_MS). Com o flag desligado cada ponto custa uma leitura volatile.
+ * Seções assíncronas e contadores exigem API 29; abaixo disso só as seções síncronas.
+ */
+final class EngineTrace {
+    static final String TAG = "SentinelaTrace";
+    private static final long RECHECK_MS = 5_000L;
+
+    static final String ON_EVENT = "Sentinela.onAccessibilityEvent";
+    static final String URL_CHECK = "Sentinela.checkAndBlockUrlInBrowser";
+    static final String EXTRACT_URL = "Sentinela.extractUrlFromRoot";
+    static final String TREE_SCAN = "Sentinela.treeScan";
+    static final String SETTINGS_CHECK = "Sentinela.checkAndBlockDangerousSettings";
+    /** Assíncrona: da checagem agendada no worker até ela rodar (ou ser substituída). */
+    static final String CHECK_DELAY = "Sentinela.checkDelay";
+    static final String COUNTER_QUEUE_DEPTH = "Sentinela.queueDepth";
+    static final String COUNTER_NODES_VISITED = "Sentinela.nodesVisited";
+
+    private static final boolean ASYNC_SUPPORTED = Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q;
+
+    private static volatile boolean enabled;
+    /** Pedido pelo JS; o adb é somado em refreshIfDue. */
+    private static volatile boolean requested;
+    private static volatile long nextCheckAt;
+    private static final AtomicInteger cookies = new AtomicInteger();
+
+    private EngineTrace() {}
+
+    static void setRequested(boolean on) {
+        requested = on;
+        nextCheckAt = SystemClock.uptimeMillis() + RECHECK_MS;
+        enabled = on || Log.isLoggable(TAG, Log.VERBOSE);
+    }
+
+    /** Relê a propriedade do adb no máximo a cada RECHECK_MS (chamado a cada evento). */
+    static void refreshIfDue() {
+        long now = SystemClock.uptimeMillis();
+        if (now < nextCheckAt) return;
+        nextCheckAt = now + RECHECK_MS;
+        enabled = requested || Log.isLoggable(TAG, Log.VERBOSE);
+    }
+
+    static boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Abre uma seção síncrona; o retorno vai para {@link #end(boolean)} no finally, para que
+     * ligar ou desligar o flag no meio não desequilibre a pilha de seções da thread.
+     */
+    static boolean begin(String name) {
+        if (!enabled) return false;
+        Trace.beginSection(name);
+        return true;
+    }
+
+    static void end(boolean begun) {
+        if (begun) Trace.endSection();
+    }
+
+    /** Abre uma seção assíncrona; retorna o cookie para {@link #endAsync}, ou 0 se não abriu. */
+    static int beginAsync(String name) {
+        if (!enabled || !ASYNC_SUPPORTED) return 0;
+        int cookie = cookies.incrementAndGet();
+        if (cookie == 0) cookie = cookies.incrementAndGet();
+        Trace.beginAsyncSection(name, cookie);
+        return cookie;
+    }
+
+    static void endAsync(String name, int cookie) {
+        if (cookie != 0) Trace.endAsyncSection(name, cookie);
+    }
+
+    static void counter(String name, long value) {
+        if (enabled && ASYNC_SUPPORTED) Trace.setCounter(name, value);
+    }
+}
@@ -0,0 +1,70 @@
+package com.sentinelaapp;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Pacote em primeiro plano, mantido em memória e gravado em segundo plano (write-behind).
+ * Antes cada troca de app fazia apply() no SentinelaPrefs, reescrevendo o XML inteiro junto
+ * com as listas; agora a gravação vai para um arquivo pequeno próprio (SentinelaState), no
+ * máximo uma vez a cada FLUSH_INTERVAL_MS, e também em onTrimMemory/onUnbind do serviço.
+ * Serviço e módulos RN rodam no mesmo processo, então {@link #current(Context)} lê direto da memória.
+ */
+final class ForegroundJournal {
+    private static final String PREFS = "SentinelaState";
+    private static final String KEY_FOREGROUND_PACKAGE = "foreground_package";
+    static final long FLUSH_INTERVAL_MS = 5_000L;
+
+    /** Último pacote em primeiro plano visto pelo serviço neste processo. */
+    private static volatile String foregroundPackage;
+
+    private final SharedPreferences store;
+    private final InspectionWorker worker;
+    private final AtomicBoolean flushPending = new AtomicBoolean();
+    /** Último valor gravado no store. */
+    private volatile String persisted;
+
+    ForegroundJournal(Context context, InspectionWorker worker) {
+        this.store = context.getSharedPreferences(PREFS, Context.MODE_PRIVATE);
+        this.worker = worker;
+        this.persisted = store.getString(KEY_FOREGROUND_PACKAGE, null);
+    }
+
+    /** Chamado a cada evento; só agenda gravação quando o valor difere do que está no disco. */
+    void setForeground(String packageName) {
+        foregroundPackage = packageName;
+        if (!packageName.equals(persisted) && flushPending.compareAndSet(false, true)) {
+            worker.postDelayed(this::flush, FLUSH_INTERVAL_MS);
+        }
+    }
+
+    /** Grava o valor atual se mudou desde a última gravação. Pode ser chamado de qualquer thread. */
+    void flush() {
+        flushPending.set(false);
+        String packageName = foregroundPackage;
+        if (packageName == null || packageName.equals(persisted)) return;
+        persisted = packageName;
+        store.edit().putString(KEY_FOREGROUND_PACKAGE, packageName).apply();
+    }
+
+    /** Pacote em primeiro plano em memória (null se o serviço ainda não viu nenhum evento). */
+    static String current() {
+        return foregroundPackage;
+    }
+
+    /**
+     * Pacote em primeiro plano para quem está fora do serviço: memória, depois o journal e,
+     * por último, a chave antiga do SentinelaPrefs (instalações anteriores ao journal).
+     */
+    static String current(Context context) {
+        String packageName = foregroundPackage;
+        if (packageName != null) return packageName;
+        packageName = context.getSharedPreferences(PREFS, Context.MODE_PRIVATE)
+                .getString(KEY_FOREGROUND_PACKAGE, null);
+        if (packageName != null) return packageName;
+        return context.getSharedPreferences(SentinelaAccessibilityService.getPrefsName(), Context.MODE_PRIVATE)
+                .getString(SentinelaAccessibilityService.getKeyLastForegroundPackage(), null);
+    }
+}
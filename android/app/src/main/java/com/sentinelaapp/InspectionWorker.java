@@ -0,0 +1,154 @@
+package com.sentinelaapp;
+
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Process;
+import android.os.SystemClock;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Thread dedicada às inspeções de árvore (URL e Configurações), fora do Looper principal.
+ * Checagens são coalescidas por pacote + janela: um pedido novo substitui o que ainda
+ * estava na fila em vez de empilhar outra série de checagens.
+ */
+final class InspectionWorker {
+    /** Retorno de {@link Check#run()} que encerra a série. */
+    static final long STOP = -1L;
+
+    /** Uma inspeção que decide sozinha quando (e se) deve rodar de novo. */
+    interface Check {
+        /** Executa a inspeção e retorna o atraso até a próxima execução (ms), ou STOP. */
+        long run();
+    }
+
+    private final HandlerThread thread;
+    private final Handler handler;
+
+    /** Jobs por pacote + janela. Só acessado na thread do worker. */
+    private final Map<String, Job> jobs = new HashMap<>();
+
+    private final AtomicInteger queueDepth = new AtomicInteger();
+    private final AtomicLong submitted = new AtomicLong();
+    private final AtomicLong executed = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+
+    InspectionWorker(String name) {
+        thread = new HandlerThread(name, Process.THREAD_PRIORITY_BACKGROUND);
+        thread.start();
+        handler = new Handler(thread.getLooper());
+    }
+
+    /**
+     * Agenda check para daqui a firstDelayMs; depois ele se reagenda pelo próprio retorno.
+     * Se já houver checagem pendente para o mesmo pacote + janela, ela é descartada.
+     */
+    void submit(String packageName, int windowId, long firstDelayMs, Check check) {
+        submit(packageName, windowId, null, firstDelayMs, check);
+    }
+
+    /**
+     * Como {@link #submit(String, int, long, Check)}, numa fila de coalescência separada por
+     * lane: um pedido de outra lane do mesmo pacote + janela não descarta este.
+     */
+    void submit(String packageName, int windowId, String lane, long firstDelayMs, Check check) {
+        submitted.incrementAndGet();
+        final long runAt = SystemClock.uptimeMillis() + firstDelayMs;
+        handler.post(() -> {
+            String key = lane == null ? packageName + '#' + windowId : packageName + '#' + windowId + '#' + lane;
+            Job job = jobs.get(key);
+            if (job == null) {
+                job = new Job(key);
+                jobs.put(key, job);
+            } else if (job.queued) {
+                handler.removeCallbacks(job);
+                job.dequeued();
+                dropped.incrementAndGet();
+            }
+            job.start(runAt, check);
+        });
+    }
+
+    /** Executa na thread do worker, sem coalescer. */
+    void post(Runnable task) {
+        handler.post(task);
+    }
+
+    /** Executa na thread do worker daqui a delayMs, sem coalescer. */
+    void postDelayed(Runnable task, long delayMs) {
+        handler.postDelayed(task, delayMs);
+    }
+
+    /** Checagens aguardando na fila (uma por pacote + janela no máximo). */
+    int getQueueDepth() {
+        return queueDepth.get();
+    }
+
+    long getSubmittedCount() {
+        return submitted.get();
+    }
+
+    long getExecutedCount() {
+        return executed.get();
+    }
+
+    /** Checagens pendentes descartadas por um pedido mais novo do mesmo pacote + janela. */
+    long getDroppedCount() {
+        return dropped.get();
+    }
+
+    void quit() {
+        handler.removeCallbacksAndMessages(null);
+        thread.quitSafely();
+    }
+
+    private final class Job implements Runnable {
+        final String key;
+        Check check;
+        boolean queued;
+        /** Cookie da seção assíncrona CHECK_DELAY enquanto na fila (0: sem trace). */
+        int traceCookie;
+
+        Job(String key) {
+            this.key = key;
+        }
+
+        void start(long runAt, Check check) {
+            this.check = check;
+            enqueue(runAt);
+        }
+
+        private void enqueue(long runAt) {
+            queued = true;
+            traceCookie = EngineTrace.beginAsync(EngineTrace.CHECK_DELAY);
+            EngineTrace.counter(EngineTrace.COUNTER_QUEUE_DEPTH, queueDepth.incrementAndGet());
+            handler.postAtTime(this, runAt);
+        }
+
+        void dequeued() {
+            queued = false;
+            EngineTrace.endAsync(EngineTrace.CHECK_DELAY, traceCookie);
+            traceCookie = 0;
+            EngineTrace.counter(EngineTrace.COUNTER_QUEUE_DEPTH, queueDepth.decrementAndGet());
+        }
+
+        @Override
+        public void run() {
+            dequeued();
+            executed.incrementAndGet();
+            long next = STOP;
+            try {
+                next = check.run();
+            } finally {
+                if (next >= 0) {
+                    enqueue(SystemClock.uptimeMillis() + next);
+                } else {
+                    jobs.remove(key);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,170 @@
+package com.sentinelaapp;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Autômato Aho-Corasick para as keywords de bloqueio.
+ * Compilado uma vez por política; percorre a URL uma única vez, sem diferenciar
+ * maiúsculas e sem alocar cópia em minúsculas, e informa qual keyword casou.
+ */
+final class KeywordMatcher {
+    private static final int ASCII = 128;
+
+    static final KeywordMatcher EMPTY = build(new ArrayList<>());
+
+    private final String[] keywords;
+    /** Transições do estado s: edgeChars/edgeTargets[edgeStart[s] .. edgeStart[s + 1]), ordenadas. */
+    private final int[] edgeStart;
+    private final char[] edgeChars;
+    private final int[] edgeTargets;
+    /** Transições diretas da raiz para ASCII (-1 = sem aresta). */
+    private final int[] rootAscii;
+    private final int[] fail;
+    /** Keyword que termina no estado, ou -1. */
+    private final int[] output;
+    /** Estado mais próximo na cadeia de falhas com output, ou -1. */
+    private final int[] dictLink;
+
+    private KeywordMatcher(String[] keywords, int[] edgeStart, char[] edgeChars, int[] edgeTargets,
+                           int[] rootAscii, int[] fail, int[] output, int[] dictLink) {
+        this.keywords = keywords;
+        this.edgeStart = edgeStart;
+        this.edgeChars = edgeChars;
+        this.edgeTargets = edgeTargets;
+        this.rootAscii = rootAscii;
+        this.fail = fail;
+        this.output = output;
+        this.dictLink = dictLink;
+    }
+
+    int size() {
+        return keywords.length;
+    }
+
+    String keyword(int index) {
+        return keywords[index];
+    }
+
+    /** Índice da primeira keyword (a que termina mais cedo) contida no texto, ou -1. */
+    int find(CharSequence text) {
+        return text == null ? -1 : find(text, 0, text.length());
+    }
+
+    int find(CharSequence text, int start, int end) {
+        if (keywords.length == 0) return -1;
+        int state = 0;
+        for (int i = start; i < end; i++) {
+            state = next(state, Character.toLowerCase(text.charAt(i)));
+            int hit = output[state] >= 0 ? state : dictLink[state];
+            if (hit >= 0) return output[hit];
+        }
+        return -1;
+    }
+
+    private int next(int state, char c) {
+        while (true) {
+            int target = transition(state, c);
+            if (target >= 0) return target;
+            if (state == 0) return 0;
+            state = fail[state];
+        }
+    }
+
+    private int transition(int state, char c) {
+        if (state == 0 && c < ASCII) return rootAscii[c];
+        int lo = edgeStart[state];
+        int hi = edgeStart[state + 1] - 1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            char m = edgeChars[mid];
+            if (m < c) {
+                lo = mid + 1;
+            } else if (m > c) {
+                hi = mid - 1;
+            } else {
+                return edgeTargets[mid];
+            }
+        }
+        return -1;
+    }
+
+    /** Compila as keywords (já normalizadas em minúsculas); vazias e repetidas são ignoradas. */
+    static KeywordMatcher build(Collection<String> source) {
+        List<String> kws = new ArrayList<>();
+        List<TreeMap<Character, Integer>> gotos = new ArrayList<>();
+        List<Integer> outs = new ArrayList<>();
+        gotos.add(new TreeMap<>());
+        outs.add(-1);
+        for (String kw : source) {
+            if (kw == null || kw.isEmpty()) continue;
+            int state = 0;
+            for (int i = 0; i < kw.length(); i++) {
+                char c = Character.toLowerCase(kw.charAt(i));
+                Integer target = gotos.get(state).get(c);
+                if (target == null) {
+                    target = gotos.size();
+                    gotos.add(new TreeMap<>());
+                    outs.add(-1);
+                    gotos.get(state).put(c, target);
+                }
+                state = target;
+            }
+            if (outs.get(state) < 0) {
+                outs.set(state, kws.size());
+                kws.add(kw);
+            }
+        }
+
+        int count = gotos.size();
+        int[] edgeStart = new int[count + 1];
+        int edges = 0;
+        for (int s = 0; s < count; s++) {
+            edgeStart[s] = edges;
+            edges += gotos.get(s).size();
+        }
+        edgeStart[count] = edges;
+        char[] edgeChars = new char[edges];
+        int[] edgeTargets = new int[edges];
+        int[] output = new int[count];
+        for (int s = 0; s < count; s++) {
+            int e = edgeStart[s];
+            for (Map.Entry<Character, Integer> edge : gotos.get(s).entrySet()) {
+                edgeChars[e] = edge.getKey();
+                edgeTargets[e] = edge.getValue();
+                e++;
+            }
+            output[s] = outs.get(s);
+        }
+        int[] rootAscii = new int[ASCII];
+        Arrays.fill(rootAscii, -1);
+        for (int e = edgeStart[0]; e < edgeStart[1]; e++) {
+            if (edgeChars[e] < ASCII) rootAscii[edgeChars[e]] = edgeTargets[e];
+        }
+
+        int[] fail = new int[count];
+        int[] dictLink = new int[count];
+        Arrays.fill(dictLink, -1);
+        KeywordMatcher matcher = new KeywordMatcher(kws.toArray(new String[0]), edgeStart, edgeChars,
+                edgeTargets, rootAscii, fail, output, dictLink);
+        // Links de falha em BFS: cada estado herda o maior sufixo próprio que também é prefixo.
+        ArrayDeque<Integer> queue = new ArrayDeque<>();
+        for (int e = edgeStart[0]; e < edgeStart[1]; e++) queue.add(edgeTargets[e]);
+        while (!queue.isEmpty()) {
+            int s = queue.poll();
+            for (int e = edgeStart[s]; e < edgeStart[s + 1]; e++) {
+                int child = edgeTargets[e];
+                fail[child] = matcher.next(fail[s], edgeChars[e]);
+                int linkSource = fail[child];
+                dictLink[child] = output[linkSource] >= 0 ? linkSource : dictLink[linkSource];
+                queue.add(child);
+            }
+        }
+        return matcher;
+    }
+}
@@ -16,6 +16,13 @@ public class MainActivity extends ReactActivity {
     return "SentinelaApp";
   }
 
+  /** Mede o bloqueio pelo caminho antigo (HOME + MainActivity) até o primeiro draw e até interativo. */
+  @Override
+  protected void onResume() {
+    super.onResume();
+    BlockScreenLatency.recordAppPath(getWindow().getDecorView(), findViewById(android.R.id.content));
+  }
+
   /**
    * Returns the instance of the {@link ReactActivityDelegate}.
    * Here we use a util class {@link DefaultReactActivityDelegate} which allows you to easily enable
@@ -0,0 +1,352 @@
+package com.sentinelaapp;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Formato binário das listas da política (blacklist, whitelist, keywords), fora do SentinelaPrefs.
+ *
+ * <pre>
+ * 0   u32 magic "SNPL"
+ * 4   u16 versão do formato
+ * 6   u16 número de seções
+ * 8   i64 versão da política (cresce a cada gravação)
+ * 16  diretório: MAX_SECTIONS x {u32 id, u32 offset, u32 tamanho, u32 registros}
+ * ... dados das seções: registros [u16 tamanho][bytes UTF-8], em ordem crescente de bytes
+ * </pre>
+ *
+ * Domínios são gravados com os rótulos invertidos ("ads.example.com" vira "com.example.ads"),
+ * então um domínio e seus subdomínios ficam contíguos. O arquivo é lido por memory-map;
+ * a gravação vai para um temporário e só então é renomeada por cima do original.
+ */
+final class PolicyFile {
+    static final int MAGIC = 0x534E504C; // "SNPL"
+    static final int FORMAT_VERSION = 1;
+
+    static final int SECTION_BLACKLIST = 1;
+    static final int SECTION_WHITELIST = 2;
+    static final int SECTION_KEYWORDS = 3;
+    /** Filtro de Bloom da blacklist (DomainBloom); bytes brutos, não registros. */
+    static final int SECTION_BLACKLIST_FILTER = 4;
+
+    static final int MAX_SECTIONS = 8;
+    static final int MAX_RECORD_LENGTH = 0xFFFF;
+    private static final int HEADER_SIZE = 16;
+    private static final int DIR_ENTRY_SIZE = 16;
+    static final int DATA_START = HEADER_SIZE + MAX_SECTIONS * DIR_ENTRY_SIZE;
+
+    static final PolicyFile EMPTY = new PolicyFile(0L, new Section[0]);
+
+    /** Versão da política gravada no cabeçalho (0 para EMPTY). */
+    final long version;
+    private final Section[] sections;
+
+    private PolicyFile(long version, Section[] sections) {
+        this.version = version;
+        this.sections = sections;
+    }
+
+    /** Seção pelo id; uma seção vazia se o arquivo não a tiver. */
+    Section section(int id) {
+        for (Section s : sections) {
+            if (s.id == id) return s;
+        }
+        return new Section(id, 0, ByteBuffer.allocate(0));
+    }
+
+    /** Mapeia o arquivo (somente leitura) e valida cabeçalho e limites das seções. */
+    static PolicyFile map(File file) throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r");
+             FileChannel channel = raf.getChannel()) {
+            long size = channel.size();
+            if (size < DATA_START) throw new IOException("arquivo de política truncado");
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            return parse(buffer);
+        }
+    }
+
+    static PolicyFile parse(ByteBuffer buffer) throws IOException {
+        if (buffer.limit() < DATA_START || buffer.getInt(0) != MAGIC) {
+            throw new IOException("arquivo de política inválido");
+        }
+        int format = buffer.getShort(4) & 0xFFFF;
+        if (format != FORMAT_VERSION) throw new IOException("formato de política " + format + " não suportado");
+        int count = buffer.getShort(6) & 0xFFFF;
+        if (count > MAX_SECTIONS) throw new IOException("seções demais: " + count);
+        long version = buffer.getLong(8);
+        Section[] sections = new Section[count];
+        for (int i = 0; i < count; i++) {
+            int entry = HEADER_SIZE + i * DIR_ENTRY_SIZE;
+            int id = buffer.getInt(entry);
+            int offset = buffer.getInt(entry + 4);
+            int length = buffer.getInt(entry + 8);
+            int records = buffer.getInt(entry + 12);
+            if (offset < DATA_START || length < 0 || records < 0 || (long) offset + length > buffer.limit()) {
+                throw new IOException("seção " + id + " fora do arquivo");
+            }
+            ByteBuffer dup = buffer.duplicate();
+            dup.position(offset);
+            dup.limit(offset + length);
+            sections[i] = new Section(id, records, dup.slice());
+        }
+        return new PolicyFile(version, sections);
+    }
+
+    /** Registros ordenados de uma seção, lidos direto do buffer mapeado. */
+    static final class Section {
+        final int id;
+        /** Número de registros. */
+        final int count;
+        /** Bytes da seção (registros [u16 tamanho][bytes]). */
+        final ByteBuffer data;
+
+        Section(int id, int count, ByteBuffer data) {
+            this.id = id;
+            this.count = count;
+            this.data = data;
+        }
+
+        boolean isEmpty() {
+            return count == 0;
+        }
+
+        /** Decodifica todos os registros; com reversedDomains desfaz a inversão dos rótulos. */
+        List<String> strings(boolean reversedDomains) {
+            if (count == 0) return Collections.emptyList();
+            List<String> out = new ArrayList<>(count);
+            int pos = 0;
+            int end = data.limit();
+            byte[] buf = new byte[256];
+            while (pos + 2 <= end) {
+                int len = data.getShort(pos) & 0xFFFF;
+                pos += 2;
+                if (pos + len > end) break;
+                if (len > buf.length) buf = new byte[len];
+                for (int i = 0; i < len; i++) buf[i] = data.get(pos + i);
+                pos += len;
+                String s = new String(buf, 0, len, StandardCharsets.UTF_8);
+                out.add(reversedDomains ? reverseLabels(s) : s);
+            }
+            return out;
+        }
+    }
+
+    // --- Normalização e codificação ---
+
+    /** Domínio como gravado: sem espaços nas pontas, minúsculo, sem pontos finais. Null se vazio. */
+    static String normalizeDomain(String raw) {
+        if (raw == null) return null;
+        String s = raw.trim().toLowerCase(Locale.ROOT);
+        int end = s.length();
+        while (end > 0 && s.charAt(end - 1) == '.') end--;
+        s = s.substring(0, end);
+        return s.isEmpty() ? null : s;
+    }
+
+    /** Keyword como gravada: minúscula e sem espaços em branco. Null se vazia. */
+    static String normalizeKeyword(String raw) {
+        if (raw == null) return null;
+        String s = raw.trim().toLowerCase(Locale.ROOT).replaceAll("\\s+", "");
+        return s.isEmpty() ? null : s;
+    }
+
+    /** "ads.example.com" <-> "com.example.ads" (a operação é a própria inversa). */
+    static String reverseLabels(String domain) {
+        int dot = domain.indexOf('.');
+        if (dot < 0) return domain;
+        StringBuilder sb = new StringBuilder(domain.length());
+        int end = domain.length();
+        for (int i = domain.length() - 1; i >= -1; i--) {
+            if (i < 0 || domain.charAt(i) == '.') {
+                if (sb.length() > 0) sb.append('.');
+                sb.append(domain, i + 1, end);
+                end = i;
+            }
+        }
+        return sb.toString();
+    }
+
+    /** Normaliza, inverte (domínios), codifica, ordena por bytes e remove duplicados. */
+    static List<byte[]> encodeRecords(Collection<String> values, boolean domains) {
+        List<byte[]> out = new ArrayList<>(values.size());
+        for (String value : values) {
+            String s = domains ? normalizeDomain(value) : normalizeKeyword(value);
+            if (s == null) continue;
+            byte[] bytes = (domains ? reverseLabels(s) : s).getBytes(StandardCharsets.UTF_8);
+            if (bytes.length > MAX_RECORD_LENGTH) continue;
+            out.add(bytes);
+        }
+        Collections.sort(out, PolicyFile::compareUnsigned);
+        List<byte[]> unique = new ArrayList<>(out.size());
+        byte[] prev = null;
+        for (byte[] b : out) {
+            if (prev == null || compareUnsigned(prev, b) != 0) unique.add(b);
+            prev = b;
+        }
+        return unique;
+    }
+
+    static int compareUnsigned(byte[] a, byte[] b) {
+        int n = Math.min(a.length, b.length);
+        for (int i = 0; i < n; i++) {
+            int d = (a[i] & 0xFF) - (b[i] & 0xFF);
+            if (d != 0) return d;
+        }
+        return a.length - b.length;
+    }
+
+    // --- Gravação ---
+
+    /**
+     * Grava um arquivo de política em streaming: seções uma após a outra, registros já em
+     * ordem. Tudo vai para target + ".tmp"; {@link #commit()} sincroniza e renomeia por cima
+     * de target, e {@link #abort()} descarta o temporário.
+     */
+    static final class Writer {
+        private final File target;
+        private final File temp;
+        private final long version;
+        private final FileOutputStream fileOut;
+        private final BufferedOutputStream out;
+        private final ByteBuffer directory =
+                ByteBuffer.allocate(PolicyFile.DATA_START);
+        private int sectionCount;
+        private long position = DATA_START;
+
+        private int sectionId = -1;
+        private long sectionStart;
+        private int sectionRecords;
+        private byte[] lastRecord;
+        private int lastRecordLength;
+
+        Writer(File target, long version) throws IOException {
+            this.target = target;
+            this.temp = new File(target.getPath() + ".tmp");
+            this.version = version;
+            this.fileOut = new FileOutputStream(temp);
+            this.out = new BufferedOutputStream(fileOut, 64 * 1024);
+            out.write(new byte[DATA_START]);
+        }
+
+        void beginSection(int id) {
+            if (sectionId >= 0) throw new IllegalStateException("seção " + sectionId + " não encerrada");
+            if (sectionCount == MAX_SECTIONS) throw new IllegalStateException("seções demais");
+            sectionId = id;
+            sectionStart = position;
+            sectionRecords = 0;
+            lastRecordLength = -1;
+        }
+
+        /** Acrescenta um registro; precisa ser estritamente maior que o anterior. */
+        void append(byte[] record, int offset, int length) throws IOException {
+            if (sectionId < 0) throw new IllegalStateException("nenhuma seção aberta");
+            if (length > MAX_RECORD_LENGTH) throw new IllegalArgumentException("registro grande demais");
+            if (lastRecordLength >= 0
+                    && compareUnsigned(lastRecord, 0, lastRecordLength, record, offset, length) >= 0) {
+                throw new IllegalArgumentException("registros fora de ordem ou duplicados");
+            }
+            out.write(length >>> 8);
+            out.write(length);
+            out.write(record, offset, length);
+            position += 2 + length;
+            sectionRecords++;
+            if (lastRecord == null || lastRecord.length < length) lastRecord = new byte[Math.max(length, 64)];
+            System.arraycopy(record, offset, lastRecord, 0, length);
+            lastRecordLength = length;
+        }
+
+        void append(byte[] record) throws IOException {
+            append(record, 0, record.length);
+        }
+
+        /** Copia uma seção já gravada (registros já ordenados) sem decodificar. */
+        void copySection(Section section) throws IOException {
+            beginSection(section.id);
+            ByteBuffer data = section.data.duplicate();
+            data.position(0);
+            byte[] chunk = new byte[8192];
+            while (data.hasRemaining()) {
+                int n = Math.min(chunk.length, data.remaining());
+                data.get(chunk, 0, n);
+                out.write(chunk, 0, n);
+            }
+            position += section.data.limit();
+            sectionRecords = section.count;
+            lastRecordLength = -1;
+            endSection();
+        }
+
+        /** Seção de bytes brutos (ex.: filtro), sem o formato de registros. */
+        void writeRawSection(int id, byte[] bytes, int count) throws IOException {
+            beginSection(id);
+            out.write(bytes);
+            position += bytes.length;
+            sectionRecords = count;
+            endSection();
+        }
+
+        void endSection() {
+            if (sectionId < 0) throw new IllegalStateException("nenhuma seção aberta");
+            long length = position - sectionStart;
+            if (position > Integer.MAX_VALUE) throw new IllegalStateException("arquivo de política grande demais");
+            int entry = HEADER_SIZE + sectionCount * DIR_ENTRY_SIZE;
+            directory.putInt(entry, sectionId);
+            directory.putInt(entry + 4, (int) sectionStart);
+            directory.putInt(entry + 8, (int) length);
+            directory.putInt(entry + 12, sectionRecords);
+            sectionCount++;
+            sectionId = -1;
+        }
+
+        /** Completa o cabeçalho, faz fsync e troca o arquivo de forma atômica. */
+        void commit() throws IOException {
+            if (sectionId >= 0) endSection();
+            boolean ok = false;
+            try {
+                out.flush();
+                directory.putInt(0, MAGIC);
+                directory.putShort(4, (short) FORMAT_VERSION);
+                directory.putShort(6, (short) sectionCount);
+                directory.putLong(8, version);
+                directory.position(0);
+                FileChannel channel = fileOut.getChannel();
+                while (directory.hasRemaining()) channel.write(directory, directory.position());
+                fileOut.getFD().sync();
+                out.close();
+                if (!temp.renameTo(target)) throw new IOException("falha ao renomear " + temp.getName());
+                ok = true;
+            } finally {
+                if (!ok) abort();
+            }
+        }
+
+        void abort() {
+            try {
+                out.close();
+            } catch (IOException ignored) {}
+            //noinspection ResultOfMethodCallIgnored
+            temp.delete();
+        }
+    }
+
+    static int compareUnsigned(byte[] a, int aOff, int aLen, byte[] b, int bOff, int bLen) {
+        int n = Math.min(aLen, bLen);
+        for (int i = 0; i < n; i++) {
+            int d = (a[aOff + i] & 0xFF) - (b[bOff + i] & 0xFF);
+            if (d != 0) return d;
+        }
+        return aLen - bLen;
+    }
+}
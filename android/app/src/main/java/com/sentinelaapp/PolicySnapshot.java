@@ -0,0 +1,143 @@
+package com.sentinelaapp;
+
+import android.content.SharedPreferences;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Política de bloqueio compilada a partir do SentinelaPrefs (flags) e do PolicyFile (listas).
+ * Imutável: o SentinelaAccessibilityService troca a referência inteira quando as
+ * preferências mudam, e o caminho quente de eventos lê apenas campos finais.
+ */
+final class PolicySnapshot {
+    /** Keywords sempre bloqueadas, somadas às keywords configuradas pelo responsável. */
+    static final Set<String> DEFAULT_KEYWORDS = Collections.unmodifiableSet(new HashSet<>(Arrays.asList(
+            "bet", "porn", "xxx", "casino", "apostas", "onlyfans", "pornhub", "xvideos", "xnxx", "bet365", "betano"
+    )));
+
+    /**
+     * Regra legada do shouldBlockUrl: visitar example.com bloqueia se ads.example.com estiver
+     * na blacklist (bl.endsWith("." + domain)). Vale só para a blacklist.
+     */
+    static final boolean MATCH_LISTED_SUBDOMAINS = true;
+
+    /** Acima disso a lista não é copiada para o heap (DomainTable em vez de DomainTrie). */
+    static final int MAPPED_TABLE_THRESHOLD = 50_000;
+
+    private static final AtomicLong VERSIONS = new AtomicLong();
+
+    /** Cresce a cada compilação; permite descartar caches de decisões antigas. */
+    final long version;
+
+    final boolean blockingEnabled;
+    final boolean restModeActive;
+    final boolean forceBlockNow;
+    final boolean urlBlockingEnabled;
+    final boolean antiTamperingEnabled;
+    /** Bloqueio pela tela nativa (BlockOverlay) em vez de HOME + MainActivity. */
+    final boolean nativeBlockScreen;
+
+    private final Set<String> blockedPackages;
+    /** Navegadores monitorados: perfis do APK com o override do JS aplicado. */
+    private final Map<String, BrowserProfile> browsers;
+    private final DomainSet whitelist;
+    private final DomainSet blacklist;
+    /** Listas de categorias empacotadas no APK (ver PolicyStore.openBundledCategories). */
+    private final DomainSet categories;
+    /** Keywords do responsável somadas às DEFAULT_KEYWORDS, num único autômato. */
+    private final KeywordMatcher keywords;
+    private final UrlVerdict[] keywordVerdicts;
+
+    private PolicySnapshot(SharedPreferences prefs, Map<String, BrowserProfile> bundledBrowsers, PolicyFile lists,
+                           DomainSet categories) {
+        version = VERSIONS.incrementAndGet();
+        blockingEnabled = prefs.getBoolean(SentinelaAccessibilityService.getKeyEnabled(), false);
+        restModeActive = prefs.getBoolean(SentinelaAccessibilityService.getKeyRestModeActive(), false);
+        forceBlockNow = prefs.getBoolean(SentinelaAccessibilityService.getKeyForceBlockNow(), false);
+        urlBlockingEnabled = prefs.getBoolean(SentinelaAccessibilityService.getKeyUrlBlockingEnabled(), false);
+        antiTamperingEnabled = prefs.getBoolean(SentinelaAccessibilityService.getKeyAntiTampering(), true);
+        nativeBlockScreen = prefs.getBoolean(SentinelaAccessibilityService.getKeyNativeBlockScreen(), true);
+
+        Set<String> blocked = prefs.getStringSet(SentinelaAccessibilityService.getKeyBlocked(), null);
+        blockedPackages = blocked == null || blocked.isEmpty()
+                ? Collections.emptySet()
+                : Collections.unmodifiableSet(new HashSet<>(blocked));
+
+        browsers = BrowserProfile.merge(bundledBrowsers,
+                prefs.getString(SentinelaAccessibilityService.getKeyBrowserProfilesOverride(), null));
+
+        whitelist = domainSet(lists.section(PolicyFile.SECTION_WHITELIST));
+        blacklist = withFilter(domainSet(lists.section(PolicyFile.SECTION_BLACKLIST)),
+                lists.section(PolicyFile.SECTION_BLACKLIST_FILTER));
+        this.categories = categories;
+
+        Set<String> kws = new LinkedHashSet<>(lists.section(PolicyFile.SECTION_KEYWORDS).strings(false));
+        kws.addAll(DEFAULT_KEYWORDS);
+        keywords = KeywordMatcher.build(kws);
+        keywordVerdicts = new UrlVerdict[keywords.size()];
+        for (int i = 0; i < keywordVerdicts.length; i++) {
+            keywordVerdicts[i] = new UrlVerdict(UrlVerdict.RULE_KEYWORD, keywords.keyword(i));
+        }
+    }
+
+    /** Compila a política atual. Chamado no connect e a cada mudança relevante de prefs. */
+    static PolicySnapshot fromPrefs(SharedPreferences prefs, Map<String, BrowserProfile> bundledBrowsers,
+                                    PolicyFile lists, DomainSet categories) {
+        return new PolicySnapshot(prefs, bundledBrowsers, lists, categories);
+    }
+
+    /** Põe o filtro de Bloom gravado na frente da lista, se houver um. */
+    static DomainSet withFilter(DomainSet exact, PolicyFile.Section filterSection) {
+        DomainBloom filter = DomainBloom.from(filterSection);
+        return filter == null ? exact : new DomainBloom.Filtered(filter, exact);
+    }
+
+    /** Listas pequenas viram DomainTrie em heap; acima do limite são consultadas no arquivo mapeado. */
+    static DomainSet domainSet(PolicyFile.Section section) {
+        if (section.count > MAPPED_TABLE_THRESHOLD) return new DomainTable(section);
+        return DomainTrie.build(section.strings(true));
+    }
+
+    /** True se a chave alterada do SentinelaPrefs afeta o snapshot (null = prefs limpas). */
+    static boolean dependsOn(String key) {
+        if (key == null) return true;
+        return key.equals(SentinelaAccessibilityService.getKeyEnabled())
+                || key.equals(SentinelaAccessibilityService.getKeyRestModeActive())
+                || key.equals(SentinelaAccessibilityService.getKeyForceBlockNow())
+                || key.equals(SentinelaAccessibilityService.getKeyUrlBlockingEnabled())
+                || key.equals(SentinelaAccessibilityService.getKeyAntiTampering())
+                || key.equals(SentinelaAccessibilityService.getKeyNativeBlockScreen())
+                || key.equals(SentinelaAccessibilityService.getKeyBlocked())
+                || key.equals(SentinelaAccessibilityService.getKeyPolicyFileVersion())
+                || key.equals(SentinelaAccessibilityService.getKeyBrowserProfilesOverride());
+    }
+
+    boolean isBlockedPackage(String packageName) {
+        return blockedPackages.contains(packageName);
+    }
+
+    /** Perfil do navegador, ou null se o pacote não é um navegador monitorado. */
+    BrowserProfile browserProfile(String packageName) {
+        return browsers.get(packageName);
+    }
+
+    /**
+     * Avalia a URL localizada em text pelo UrlScanner. Whitelist vence blacklist, que vence
+     * keywords (mesma ordem do shouldBlockUrl original).
+     */
+    UrlVerdict evaluateUrl(CharSequence text, UrlScanner.Span url) {
+        if (whitelist.matches(text, url.hostStart, url.hostEnd, false)) return UrlVerdict.WHITELISTED;
+        if (blacklist.matches(text, url.hostStart, url.hostEnd, MATCH_LISTED_SUBDOMAINS)
+                || categories.matches(text, url.hostStart, url.hostEnd, false)) {
+            return UrlVerdict.BLOCKED_DOMAIN;
+        }
+        int kw = keywords.find(text, url.start, url.end);
+        return kw >= 0 ? keywordVerdicts[kw] : UrlVerdict.ALLOWED;
+    }
+}
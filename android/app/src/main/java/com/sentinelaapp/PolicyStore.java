@@ -0,0 +1,337 @@
+package com.sentinelaapp;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.content.res.AssetFileDescriptor;
+import android.util.Log;
+
+import org.json.JSONArray;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Onde o {@link PolicyFile} mora (files/policy.bin) e como ele é trocado.
+ * Gravações são serializadas neste processo, sempre por arquivo temporário + rename, e
+ * terminam gravando a versão nova em SentinelaPrefs (policy_file_version): o serviço já
+ * escuta o SentinelaPrefs e recarrega a política, agora sem listas dentro do XML.
+ * Na primeira execução as listas JSON antigas do SentinelaPrefs são migradas para o arquivo.
+ */
+final class PolicyStore {
+    private static final String TAG = "SentinelaPolicyStore";
+    static final String FILE_NAME = "policy.bin";
+    static final String CATEGORIES_ASSET = "category_blocklist.snpl";
+
+    /** expectedVersion de {@link #rewriteSection} que aceita qualquer versão atual. */
+    static final long ANY_VERSION = -1L;
+
+    private static final Object LOCK = new Object();
+
+    private PolicyStore() {}
+
+    static File file(Context context) {
+        return new File(context.getFilesDir(), FILE_NAME);
+    }
+
+    /**
+     * Listas de categorias (adulto, apostas, malware) empacotadas como asset no formato do
+     * PolicyFile, na seção SECTION_BLACKLIST. O asset não é comprimido (noCompress "snpl"),
+     * então é mapeado direto do APK. EMPTY se o APK não trouxer o asset.
+     */
+    static PolicyFile openBundledCategories(Context context) {
+        try (AssetFileDescriptor afd = context.getAssets().openFd(CATEGORIES_ASSET);
+             FileInputStream in = afd.createInputStream();
+             FileChannel channel = in.getChannel()) {
+            return PolicyFile.parse(channel.map(FileChannel.MapMode.READ_ONLY, afd.getStartOffset(), afd.getLength()));
+        } catch (FileNotFoundException e) {
+            return PolicyFile.EMPTY;
+        } catch (IOException e) {
+            Log.e(TAG, "Falha ao abrir " + CATEGORIES_ASSET + ": " + e.getMessage());
+            return PolicyFile.EMPTY;
+        }
+    }
+
+    /** Migra se preciso e mapeia o arquivo atual; EMPTY se não houver listas gravadas. */
+    static PolicyFile open(Context context) {
+        migrateIfNeeded(context);
+        File file = file(context);
+        if (!file.exists()) return PolicyFile.EMPTY;
+        try {
+            return PolicyFile.map(file);
+        } catch (IOException e) {
+            Log.e(TAG, "Falha ao abrir " + FILE_NAME + ": " + e.getMessage());
+            return PolicyFile.EMPTY;
+        }
+    }
+
+    /** Versão da política gravada (0 se ainda não há arquivo). */
+    static long currentVersion(Context context) {
+        migrateIfNeeded(context);
+        return openExisting(context).version;
+    }
+
+    /** A política mudou desde a versão em que o delta foi calculado. */
+    static final class VersionConflictException extends IOException {
+        private static final long serialVersionUID = 1L;
+
+        final long currentVersion;
+
+        VersionConflictException(long expected, long current) {
+            super("Versão da política " + current + " (esperada " + expected + ")");
+            this.currentVersion = current;
+        }
+    }
+
+    /**
+     * Conteúdo novo de uma seção, gravado em streaming dentro do lock do PolicyStore
+     * (o arquivo atual é passado para permitir mesclar com a seção existente).
+     */
+    interface SectionContent {
+        /** Limite superior de registros (dimensiona o filtro de Bloom da blacklist). */
+        int maxRecords(PolicyFile current);
+
+        /** Acrescenta os registros, ordenados e sem duplicados, no writer e no filtro (se não for null). */
+        void write(PolicyFile current, PolicyFile.Writer writer, DomainBloom.Builder bloom) throws IOException;
+    }
+
+    /**
+     * Substitui uma seção (domínios ou keywords) mantendo as demais como estão.
+     * Retorna a nova versão da política.
+     */
+    static long replaceSection(Context context, int sectionId, Collection<String> values) throws IOException {
+        List<byte[]> records = PolicyFile.encodeRecords(values, sectionId != PolicyFile.SECTION_KEYWORDS);
+        return rewriteSection(context, sectionId, new SectionContent() {
+            @Override
+            public int maxRecords(PolicyFile current) {
+                return records.size();
+            }
+
+            @Override
+            public void write(PolicyFile current, PolicyFile.Writer writer, DomainBloom.Builder bloom)
+                    throws IOException {
+                for (byte[] record : records) {
+                    writer.append(record);
+                    if (bloom != null) bloom.add(record);
+                }
+            }
+        });
+    }
+
+    /**
+     * Soma adds e tira removes de uma seção, mesclando em streaming com os registros atuais
+     * (sem decodificar a lista nem reenviá-la pelo bridge). Com expectedVersion diferente de
+     * ANY_VERSION, falha com {@link VersionConflictException} se a política tiver mudado.
+     * Um domínio em adds e removes é removido.
+     */
+    static long applyDelta(Context context, int sectionId, long expectedVersion,
+                           Collection<String> adds, Collection<String> removes) throws IOException {
+        boolean domains = sectionId != PolicyFile.SECTION_KEYWORDS;
+        List<byte[]> addRecords = PolicyFile.encodeRecords(adds, domains);
+        List<byte[]> removeRecords = PolicyFile.encodeRecords(removes, domains);
+        return rewriteSection(context, sectionId, expectedVersion, new SectionContent() {
+            @Override
+            public int maxRecords(PolicyFile current) {
+                return current.section(sectionId).count + addRecords.size();
+            }
+
+            @Override
+            public void write(PolicyFile current, PolicyFile.Writer writer, DomainBloom.Builder bloom)
+                    throws IOException {
+                mergeDelta(current.section(sectionId), addRecords, removeRecords, writer, bloom);
+            }
+        });
+    }
+
+    /** Mescla três sequências ordenadas: (existing ∪ adds) \ removes. */
+    private static void mergeDelta(PolicyFile.Section existing, List<byte[]> adds, List<byte[]> removes,
+                                   PolicyFile.Writer writer, DomainBloom.Builder bloom) throws IOException {
+        ByteBuffer data = existing.data;
+        int end = data.limit();
+        int pos = 0;
+        byte[] record = new byte[PolicyFile.MAX_RECORD_LENGTH];
+        int recordLength = -1;
+        int a = 0;
+        int r = 0;
+        while (true) {
+            if (recordLength < 0 && pos + 2 <= end) {
+                int len = data.getShort(pos) & 0xFFFF;
+                if (pos + 2 + len > end) {
+                    pos = end;
+                } else {
+                    for (int i = 0; i < len; i++) record[i] = data.get(pos + 2 + i);
+                    pos += 2 + len;
+                    recordLength = len;
+                }
+            }
+            byte[] next;
+            int nextLength;
+            if (recordLength < 0) {
+                if (a == adds.size()) break;
+                next = adds.get(a++);
+                nextLength = next.length;
+            } else if (a == adds.size()) {
+                next = record;
+                nextLength = recordLength;
+                recordLength = -1;
+            } else {
+                byte[] add = adds.get(a);
+                int cmp = PolicyFile.compareUnsigned(record, 0, recordLength, add, 0, add.length);
+                if (cmp < 0) {
+                    next = record;
+                    nextLength = recordLength;
+                    recordLength = -1;
+                } else {
+                    // Igual: o registro existente e o add viram um só.
+                    if (cmp == 0) recordLength = -1;
+                    next = add;
+                    nextLength = add.length;
+                    a++;
+                }
+            }
+            while (r < removes.size() && compareTo(removes.get(r), next, nextLength) < 0) r++;
+            if (r < removes.size() && compareTo(removes.get(r), next, nextLength) == 0) continue;
+            writer.append(next, 0, nextLength);
+            if (bloom != null) bloom.add(next, 0, nextLength);
+        }
+    }
+
+    private static int compareTo(byte[] a, byte[] b, int bLength) {
+        return PolicyFile.compareUnsigned(a, 0, a.length, b, 0, bLength);
+    }
+
+    /** Regrava o arquivo com a seção sectionId vinda de content; as demais são copiadas. */
+    static long rewriteSection(Context context, int sectionId, SectionContent content) throws IOException {
+        return rewriteSection(context, sectionId, ANY_VERSION, content);
+    }
+
+    /** Como {@link #rewriteSection(Context, int, SectionContent)}, com checagem otimista de versão. */
+    static long rewriteSection(Context context, int sectionId, long expectedVersion, SectionContent content)
+            throws IOException {
+        synchronized (LOCK) {
+            migrateIfNeeded(context);
+            PolicyFile current = openExisting(context);
+            if (expectedVersion != ANY_VERSION && expectedVersion != current.version) {
+                throw new VersionConflictException(expectedVersion, current.version);
+            }
+            long version = current.version + 1;
+            PolicyFile.Writer writer = new PolicyFile.Writer(file(context), version);
+            try {
+                DomainBloom.Builder bloom = null;
+                for (int id : new int[] {PolicyFile.SECTION_BLACKLIST, PolicyFile.SECTION_WHITELIST,
+                        PolicyFile.SECTION_KEYWORDS}) {
+                    if (id == sectionId) {
+                        int max = content.maxRecords(current);
+                        if (id == PolicyFile.SECTION_BLACKLIST && max > 0) bloom = new DomainBloom.Builder(max);
+                        writer.beginSection(id);
+                        content.write(current, writer, bloom);
+                        writer.endSection();
+                    } else {
+                        writer.copySection(current.section(id));
+                    }
+                }
+                if (sectionId == PolicyFile.SECTION_BLACKLIST) {
+                    if (bloom != null) {
+                        writer.writeRawSection(PolicyFile.SECTION_BLACKLIST_FILTER, bloom.toBytes(),
+                                content.maxRecords(current));
+                    }
+                } else {
+                    writer.copySection(current.section(PolicyFile.SECTION_BLACKLIST_FILTER));
+                }
+                writer.commit();
+            } catch (IOException | RuntimeException e) {
+                writer.abort();
+                throw e;
+            }
+            notifyChanged(context, version);
+            return version;
+        }
+    }
+
+    /** Converte blocked_domains/whitelist_domains/blocked_keywords (JSON) do SentinelaPrefs, uma vez. */
+    static void migrateIfNeeded(Context context) {
+        SharedPreferences prefs = prefs(context);
+        String blacklistKey = SentinelaAccessibilityService.getKeyBlockedDomains();
+        String whitelistKey = SentinelaAccessibilityService.getKeyWhitelistDomains();
+        String keywordsKey = SentinelaAccessibilityService.getKeyBlockedKeywords();
+        if (!prefs.contains(blacklistKey) && !prefs.contains(whitelistKey) && !prefs.contains(keywordsKey)) return;
+        synchronized (LOCK) {
+            if (!prefs.contains(blacklistKey) && !prefs.contains(whitelistKey) && !prefs.contains(keywordsKey)) return;
+            File file = file(context);
+            long version = openExisting(context).version + 1;
+            // Um arquivo já existente é mais novo que o JSON legado: só descarta as chaves.
+            if (!file.exists()) {
+                PolicyFile.Writer writer = null;
+                try {
+                    writer = new PolicyFile.Writer(file, version);
+                    List<byte[]> blacklist = legacyRecords(prefs.getString(blacklistKey, null), true);
+                    writeSection(writer, PolicyFile.SECTION_BLACKLIST, blacklist);
+                    writeSection(writer, PolicyFile.SECTION_WHITELIST, legacyRecords(prefs.getString(whitelistKey, null), true));
+                    writeSection(writer, PolicyFile.SECTION_KEYWORDS, legacyRecords(prefs.getString(keywordsKey, null), false));
+                    writeBlacklistFilter(writer, blacklist);
+                    writer.commit();
+                    Log.i(TAG, "Listas migradas do SentinelaPrefs para " + FILE_NAME);
+                } catch (Exception e) {
+                    if (writer != null) writer.abort();
+                    Log.e(TAG, "Falha ao migrar listas: " + e.getMessage());
+                    return;
+                }
+            }
+            prefs.edit()
+                    .remove(blacklistKey)
+                    .remove(whitelistKey)
+                    .remove(keywordsKey)
+                    .putLong(SentinelaAccessibilityService.getKeyPolicyFileVersion(), version)
+                    .apply();
+        }
+    }
+
+    private static List<byte[]> legacyRecords(String json, boolean domains) throws Exception {
+        List<String> values = new ArrayList<>();
+        if (json != null) {
+            JSONArray arr = new JSONArray(json);
+            for (int i = 0; i < arr.length(); i++) values.add(arr.optString(i, ""));
+        }
+        return PolicyFile.encodeRecords(values, domains);
+    }
+
+    private static void writeSection(PolicyFile.Writer writer, int id, List<byte[]> records) throws IOException {
+        writer.beginSection(id);
+        for (byte[] record : records) writer.append(record);
+        writer.endSection();
+    }
+
+    /** Filtro de Bloom montado junto com a blacklist; lido pronto pelo serviço no connect. */
+    private static void writeBlacklistFilter(PolicyFile.Writer writer, List<byte[]> blacklist) throws IOException {
+        if (blacklist.isEmpty()) return;
+        DomainBloom.Builder bloom = new DomainBloom.Builder(blacklist.size());
+        for (byte[] record : blacklist) bloom.add(record);
+        writer.writeRawSection(PolicyFile.SECTION_BLACKLIST_FILTER, bloom.toBytes(), blacklist.size());
+    }
+
+    /** Arquivo atual sem migrar (EMPTY se não existir ou estiver corrompido). */
+    private static PolicyFile openExisting(Context context) {
+        File file = file(context);
+        if (!file.exists()) return PolicyFile.EMPTY;
+        try {
+            return PolicyFile.map(file);
+        } catch (IOException e) {
+            Log.w(TAG, "Arquivo de política ilegível, será recriado: " + e.getMessage());
+            return PolicyFile.EMPTY;
+        }
+    }
+
+    private static void notifyChanged(Context context, long version) {
+        prefs(context).edit().putLong(SentinelaAccessibilityService.getKeyPolicyFileVersion(), version).apply();
+    }
+
+    private static SharedPreferences prefs(Context context) {
+        return context.getSharedPreferences(SentinelaAccessibilityService.getPrefsName(), Context.MODE_PRIVATE);
+    }
+}
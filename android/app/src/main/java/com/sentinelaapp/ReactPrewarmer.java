@@ -0,0 +1,105 @@
+package com.sentinelaapp;
+
+import android.app.ActivityManager;
+import android.content.ComponentCallbacks2;
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.util.Log;
+
+import com.facebook.react.ReactApplication;
+import com.facebook.react.ReactInstanceEventListener;
+import com.facebook.react.ReactInstanceManager;
+import com.facebook.react.ReactNativeHost;
+import com.facebook.react.bridge.ReactContext;
+
+/**
+ * Pré-aquecimento opcional do host React Native (react_prewarm_enabled, desligado por
+ * padrão). No connect do serviço e no boot, inicializa o ReactInstanceManager em segundo
+ * plano para que o primeiro bloqueio pelo caminho antigo (HOME + MainActivity) já encontre
+ * Hermes e o bundle carregados. Não aquece em aparelho com pouca RAM ou sob pressão de
+ * memória, e desfaz o aquecimento em onTrimMemory quando nenhuma Activity usa o host.
+ */
+final class ReactPrewarmer {
+    private static final String TAG = "SentinelaPrewarm";
+
+    /** True enquanto o host atual foi criado por nós (e não pela MainActivity). */
+    private static volatile boolean prewarmed;
+
+    private ReactPrewarmer() {}
+
+    static boolean isEnabled(Context context) {
+        return context.getSharedPreferences(SentinelaAccessibilityService.getPrefsName(), Context.MODE_PRIVATE)
+                .getBoolean(SentinelaAccessibilityService.getKeyReactPrewarmEnabled(), false);
+    }
+
+    /** Inicia o contexto React em segundo plano, se o modo estiver ligado e houver memória. */
+    static void prewarm(Context context, String trigger) {
+        Context app = context.getApplicationContext();
+        if (!(app instanceof ReactApplication) || !isEnabled(app)) return;
+        if (underMemoryPressure(app)) {
+            Log.i(TAG, "Pré-aquecimento ignorado (" + trigger + "): pouca memória");
+            return;
+        }
+        // ReactInstanceManager exige a thread principal.
+        new Handler(Looper.getMainLooper()).post(() -> {
+            ReactInstanceManager manager = ((ReactApplication) app).getReactNativeHost().getReactInstanceManager();
+            if (manager.hasStartedCreatingInitialContext()) return;
+            long start = SystemClock.elapsedRealtime();
+            manager.addReactInstanceEventListener(new ReactInstanceEventListener() {
+                @Override
+                public void onReactContextInitialized(ReactContext reactContext) {
+                    manager.removeReactInstanceEventListener(this);
+                    Log.i(TAG, "Host React pronto em " + (SystemClock.elapsedRealtime() - start) + "ms (" + trigger + ")");
+                }
+            });
+            prewarmed = true;
+            manager.createReactContextInBackground();
+        });
+    }
+
+    /** O contexto React já existe (a MainActivity abriria sem carregar o bundle). */
+    static boolean isWarm(Context context) {
+        Context app = context.getApplicationContext();
+        if (!(app instanceof ReactApplication)) return false;
+        ReactNativeHost host = ((ReactApplication) app).getReactNativeHost();
+        return host.hasInstance() && host.getReactInstanceManager().getCurrentReactContext() != null;
+    }
+
+    /**
+     * Libera o host aquecido sob pressão de memória. TRIM_MEMORY_UI_HIDDEN não conta: só
+     * significa que o usuário saiu da UI, e é justamente quando o host aquecido serve.
+     */
+    static void onTrimMemory(Context context, int level) {
+        if (!prewarmed) return;
+        boolean pressure = level == ComponentCallbacks2.TRIM_MEMORY_RUNNING_LOW
+                || level == ComponentCallbacks2.TRIM_MEMORY_RUNNING_CRITICAL
+                || level >= ComponentCallbacks2.TRIM_MEMORY_BACKGROUND;
+        if (!pressure) return;
+        Context app = context.getApplicationContext();
+        if (!(app instanceof ReactApplication)) return;
+        new Handler(Looper.getMainLooper()).post(() -> {
+            ReactNativeHost host = ((ReactApplication) app).getReactNativeHost();
+            if (!prewarmed || !host.hasInstance()) return;
+            ReactContext reactContext = host.getReactInstanceManager().getCurrentReactContext();
+            if (reactContext != null && reactContext.hasCurrentActivity()) {
+                // A MainActivity está usando o host: ele deixou de ser só aquecimento.
+                prewarmed = false;
+                return;
+            }
+            host.clear();
+            prewarmed = false;
+            Log.i(TAG, "Host React aquecido liberado (onTrimMemory " + level + ")");
+        });
+    }
+
+    private static boolean underMemoryPressure(Context context) {
+        ActivityManager am = (ActivityManager) context.getSystemService(Context.ACTIVITY_SERVICE);
+        if (am == null) return false;
+        if (am.isLowRamDevice()) return true;
+        ActivityManager.MemoryInfo info = new ActivityManager.MemoryInfo();
+        am.getMemoryInfo(info);
+        return info.lowMemory;
+    }
+}
@@ -1,26 +1,26 @@
 package com.sentinelaapp;
 
 import android.accessibilityservice.AccessibilityService;
+import android.accessibilityservice.AccessibilityServiceInfo;
 import android.content.Intent;
 import android.content.SharedPreferences;
 import android.content.pm.ResolveInfo;
 import android.net.Uri;
+import android.os.Build;
 import android.os.Handler;
 import android.os.Looper;
+import android.os.SystemClock;
 import android.provider.Settings;
 import android.util.Log;
 import android.view.accessibility.AccessibilityNodeInfo;
 import android.view.accessibility.AccessibilityEvent;
 
-import org.json.JSONArray;
-import org.json.JSONObject;
-
 import java.util.HashSet;
 import java.util.Arrays;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
-import java.util.Locale;
-import java.util.regex.Pattern;
 
 /**
  * Bloqueia apps quando o usuário tenta abri-los.
@@ -36,23 +36,23 @@ public class SentinelaAccessibilityService extends AccessibilityService {
     private static final String KEY_ANTI_TAMPERING = "anti_tampering_enabled";
     private static final String KEY_REST_MODE_ACTIVE = "rest_mode_active";
     private static final String KEY_FORCE_BLOCK_NOW = "force_block_now";
+    /** Só leitura (instalações antigas); o valor atual fica no ForegroundJournal. */
     private static final String KEY_LAST_FOREGROUND_PACKAGE = "last_foreground_package";
     private static final String KEY_URL_BLOCKING_ENABLED = "url_blocking_enabled";
+    /** Listas em JSON das versões antigas; migradas para o PolicyFile (PolicyStore) na primeira execução. */
     private static final String KEY_BLOCKED_DOMAINS = "blocked_domains";
     private static final String KEY_WHITELIST_DOMAINS = "whitelist_domains";
     private static final String KEY_BLOCKED_KEYWORDS = "blocked_keywords";
-
-    /** Navegadores nos quais verificamos URL */
-    private static final Set<String> BROWSER_PACKAGES = new HashSet<>(Arrays.asList(
-            "com.android.chrome",
-            "org.mozilla.firefox",
-            "org.mozilla.fennec_fdroid",
-            "org.mozilla.fenix",
-            "com.sec.android.app.sbrowser",
-            "com.microsoft.emmx",
-            "com.opera.browser",
-            "com.opera.mini.native"
-    ));
+    /** Versão do policy.bin; o PolicyStore grava a cada troca de listas para acordar o serviço. */
+    private static final String KEY_POLICY_FILE_VERSION = "policy_file_version";
+    /** JSON com perfis de navegador que sobrescrevem/estendem o asset browser_profiles.json. */
+    private static final String KEY_BROWSER_PROFILES_OVERRIDE = "browser_profiles_override";
+    /** false volta ao bloqueio antigo (HOME + MainActivity) no lugar da tela nativa. */
+    private static final String KEY_NATIVE_BLOCK_SCREEN = "native_block_screen";
+    /** Pré-aquecimento do host React (ReactPrewarmer); desligado por padrão. */
+    private static final String KEY_REACT_PREWARM_ENABLED = "react_prewarm_enabled";
+    /** Seções de trace do motor (EngineTrace); desligado por padrão. */
+    private static final String KEY_ENGINE_TRACE_ENABLED = "engine_trace_enabled";
 
     /** Package do Sentinela — permite desligar o Modo Descanso mesmo com bloqueio ativo. */
     private static final String SENTINELA_PACKAGE = "com.sentinelaapp";
@@ -68,9 +68,36 @@ public class SentinelaAccessibilityService extends AccessibilityService {
     private static final String SYSTEM_UI_PACKAGE = "com.android.systemui";
 
     private static final long BLOCK_DEBOUNCE_MS = 2500L;
+    /** Coalescência dos eventos enquanto TYPE_WINDOW_CONTENT_CHANGED está assinado (igual ao XML). */
+    private static final long CONTENT_EVENTS_TIMEOUT_MS = 100L;
 
     private SharedPreferences prefs;
-    private final Handler handler = new Handler(Looper.getMainLooper());
+    /** Perfis de navegador do asset (lidos uma vez). */
+    private Map<String, BrowserProfile> bundledBrowsers;
+    /** Categorias empacotadas no APK, mapeadas uma vez. */
+    private DomainSet bundledCategories;
+    /** Inspeções de árvore (URL, Configurações) rodam aqui, fora do Looper principal. */
+    private InspectionWorker worker;
+    /** Pacote em primeiro plano em memória, gravado em segundo plano num arquivo próprio. */
+    private ForegroundJournal foregroundJournal;
+    /** Desbloqueios temporários, compartilhados com o AppBlockModule. */
+    private TemporaryUnlockRegistry unlocks;
+    /** Bloqueios e liberações por exceção, lidos pelo AppBlockModule.getDecisions. */
+    private DecisionLog decisions;
+    /** Tela de bloqueio nativa; só na thread principal. */
+    private BlockOverlay blockOverlay;
+    private Handler mainHandler;
+
+    /** Política compilada; trocada por inteiro quando o SentinelaPrefs muda. */
+    private volatile PolicySnapshot policy;
+    /** Instância conectada, para os contadores de runtimeStats() (null sem serviço). */
+    private static volatile SentinelaAccessibilityService running;
+
+    /** Mantido em campo: o SharedPreferences guarda o listener apenas por referência fraca. */
+    private final SharedPreferences.OnSharedPreferenceChangeListener policyListener = (sp, key) -> {
+        if (KEY_ENGINE_TRACE_ENABLED.equals(key)) EngineTrace.setRequested(sp.getBoolean(key, false));
+        if (PolicySnapshot.dependsOn(key)) worker.post(this::reloadPolicy);
+    };
 
     /** Último momento em que executamos bloqueio + bringSentinela (debounce). */
     private volatile long lastBlockAndBringAt;
@@ -85,6 +112,95 @@ public class SentinelaAccessibilityService extends AccessibilityService {
     public void onCreate() {
         super.onCreate();
         prefs = getSharedPreferences(PREFS, MODE_PRIVATE);
+        worker = new InspectionWorker("SentinelaInspect");
+        foregroundJournal = new ForegroundJournal(this, worker);
+        unlocks = TemporaryUnlockRegistry.get(this);
+        decisions = DecisionLog.get(this);
+        mainHandler = new Handler(Looper.getMainLooper());
+        blockOverlay = new BlockOverlay(this, this::bringSentinelaToFront);
+        unlocks.setExpiryListener(packageName -> worker.post(() -> blockIfStillForeground(packageName)));
+        bundledBrowsers = BrowserProfile.loadBundled(this);
+        PolicyFile categories = PolicyStore.openBundledCategories(this);
+        bundledCategories = PolicySnapshot.withFilter(
+                new DomainTable(categories.section(PolicyFile.SECTION_BLACKLIST)),
+                categories.section(PolicyFile.SECTION_BLACKLIST_FILTER));
+        reloadPolicy();
+        EngineTrace.setRequested(prefs.getBoolean(KEY_ENGINE_TRACE_ENABLED, false));
+        prefs.registerOnSharedPreferenceChangeListener(policyListener);
+    }
+
+    @Override
+    public void onDestroy() {
+        if (running == this) running = null;
+        if (prefs != null) prefs.unregisterOnSharedPreferenceChangeListener(policyListener);
+        if (unlocks != null) unlocks.setExpiryListener(null);
+        if (foregroundJournal != null) foregroundJournal.flush();
+        if (unlocks != null) unlocks.flush();
+        if (blockOverlay != null) blockOverlay.hide();
+        if (worker != null) worker.quit();
+        super.onDestroy();
+    }
+
+    /** Recompila a política a partir do SentinelaPrefs e do policy.bin e publica o novo snapshot. */
+    private void reloadPolicy() {
+        PolicySnapshot next = PolicySnapshot.fromPrefs(prefs, bundledBrowsers, PolicyStore.open(this),
+                bundledCategories);
+        policy = next;
+        Log.i(TAG, "Política recarregada (v" + next.version + ")");
+        mainHandler.post(this::applyEventFilter);
+    }
+
+    /** Modo de eventos aplicado por último via setServiceInfo (-1: o do XML). Só na thread principal. */
+    private int appliedEventMode = -1;
+    /** Um navegador monitorado está em primeiro plano. Só na thread principal. */
+    private boolean browserInFront;
+
+    /**
+     * Ajusta em tempo de execução os eventos que o sistema entrega ao serviço (o XML só vale
+     * até o connect). TYPE_WINDOW_CONTENT_CHANGED, de longe o mais frequente, só é pedido com o
+     * bloqueio de URL ligado e um navegador monitorado em primeiro plano; sem ele o
+     * notificationTimeout cai para 0 e o bloqueio de apps não espera a janela de coalescência.
+     * IDs de view e views "não importantes" só quando alguma inspeção de árvore os usa.
+     * Só na thread principal; setServiceInfo só é chamado quando o modo muda.
+     */
+    private void applyEventFilter() {
+        PolicySnapshot policy = this.policy;
+        boolean content = policy.urlBlockingEnabled && browserInFront;
+        boolean viewIds = policy.urlBlockingEnabled;
+        boolean notImportant = policy.urlBlockingEnabled || policy.antiTamperingEnabled;
+        int mode = (content ? 1 : 0) | (viewIds ? 2 : 0) | (notImportant ? 4 : 0);
+        if (mode == appliedEventMode) return;
+        AccessibilityServiceInfo info = getServiceInfo();
+        if (info == null) return; // Antes do connect; onServiceConnected aplica.
+        info.eventTypes = AccessibilityEvent.TYPE_WINDOW_STATE_CHANGED
+                | (content ? AccessibilityEvent.TYPE_WINDOW_CONTENT_CHANGED : 0);
+        info.notificationTimeout = content ? CONTENT_EVENTS_TIMEOUT_MS : 0L;
+        int flags = info.flags & ~(AccessibilityServiceInfo.FLAG_REPORT_VIEW_IDS
+                | AccessibilityServiceInfo.FLAG_INCLUDE_NOT_IMPORTANT_VIEWS);
+        if (viewIds) flags |= AccessibilityServiceInfo.FLAG_REPORT_VIEW_IDS;
+        if (notImportant) flags |= AccessibilityServiceInfo.FLAG_INCLUDE_NOT_IMPORTANT_VIEWS;
+        info.flags = flags;
+        setServiceInfo(info);
+        appliedEventMode = mode;
+        Log.i(TAG, "Eventos: " + (content ? "janela + conteúdo (navegador)" : "só janela") + ", flags " + flags);
+    }
+
+    /**
+     * A janela do evento fica por cima do app da frente sem substituí-lo: System UI, teclado
+     * ou a própria tela de bloqueio nativa (mesmo pacote do Sentinela, mas não a MainActivity).
+     * Só na thread principal (lê o estado do BlockOverlay).
+     */
+    private boolean isOverlayWindow(String packageName, CharSequence className) {
+        if (isOverlayPackage(packageName)) return true;
+        return packageName.equals(getPackageName()) && blockOverlay.isShowing()
+                && !MainActivity.class.getName().equals(String.valueOf(className));
+    }
+
+    /** System UI e teclado abrem janelas por cima do app sem tirá-lo da frente. */
+    private boolean isOverlayPackage(String packageName) {
+        if (SYSTEM_UI_PACKAGE.equals(packageName)) return true;
+        String ime = getDefaultImePackage();
+        return ime != null && ime.equals(packageName);
     }
 
     /** Resolve o pacote do launcher padrão (home screen). */
@@ -138,38 +254,83 @@ public class SentinelaAccessibilityService extends AccessibilityService {
         return (System.currentTimeMillis() - lastBlockAndBringAt) < BLOCK_DEBOUNCE_MS;
     }
 
-    /** Debounce para evitar excesso de checagens em TYPE_WINDOW_CONTENT_CHANGED. */
+    /**
+     * Debounce para evitar excesso de checagens em TYPE_WINDOW_CONTENT_CHANGED que não vêm da
+     * barra de endereço. Navegadores sem barra conhecida usam o intervalo curto; os demais são
+     * rearmados pela própria barra e só usam o intervalo longo como rede de segurança.
+     */
     private static final long URL_CHECK_DEBOUNCE_MS = 1500L;
+    private static final long URL_RECHECK_FALLBACK_MS = 10_000L;
     private volatile long lastUrlCheckScheduledAt;
     private volatile String lastUrlCheckPackage;
+    /** Lane do InspectionWorker para os candidatos a barra (não descarta as checagens de URL). */
+    private static final String URL_BAR_LANE = "urlBar";
 
     @Override
     public void onAccessibilityEvent(AccessibilityEvent event) {
+        EngineTrace.refreshIfDue();
+        boolean traced = EngineTrace.begin(EngineTrace.ON_EVENT);
+        try {
+            handleEvent(event);
+        } finally {
+            EngineTrace.end(traced);
+        }
+    }
+
+    private void handleEvent(AccessibilityEvent event) {
         int eventType = event.getEventType();
         CharSequence pkg = event.getPackageName();
         if (pkg == null || pkg.length() == 0) return;
         String packageName = pkg.toString();
+        PolicySnapshot policy = this.policy;
+        long eventTime = event.getEventTime();
+        if (eventTime > 0) {
+            EngineStats.recordMicros(EngineStats.STAGE_DISPATCH, (SystemClock.uptimeMillis() - eventTime) * 1_000L);
+        }
+        unlocks.sweepIfDue();
 
         if (eventType == AccessibilityEvent.TYPE_WINDOW_CONTENT_CHANGED) {
-            if (isUrlBlockingEnabled() && BROWSER_PACKAGES.contains(packageName)) {
+            BrowserProfile browser = policy.urlBlockingEnabled ? policy.browserProfile(packageName) : null;
+            if (browser != null) {
                 long now = System.currentTimeMillis();
                 boolean samePkg = packageName.equals(lastUrlCheckPackage);
-                if (!samePkg || (now - lastUrlCheckScheduledAt) > URL_CHECK_DEBOUNCE_MS) {
+                long debounce = browser.urlBarIds.length > 0 ? URL_RECHECK_FALLBACK_MS : URL_CHECK_DEBOUNCE_MS;
+                if (mayComeFromUrlBar(event, browser)) {
+                    // getSource é IPC: o worker resolve o nó e agenda a checagem se ele for a barra.
+                    // Uma rajada de eventos vira um só getSource (o pedido mais novo substitui o da fila).
+                    foregroundJournal.setForeground(packageName);
+                    AccessibilityEvent copy = copyEvent(event);
+                    worker.submit(packageName, event.getWindowId(), URL_BAR_LANE, 0L,
+                            () -> onUrlBarCandidate(packageName, copy, eventTime));
+                }
+                if (!samePkg || (now - lastUrlCheckScheduledAt) > debounce) {
                     lastUrlCheckPackage = packageName;
                     lastUrlCheckScheduledAt = now;
-                    prefs.edit().putString(KEY_LAST_FOREGROUND_PACKAGE, packageName).apply();
-                    scheduleUrlChecks(packageName);
+                    foregroundJournal.setForeground(packageName);
+                    scheduleUrlChecks(packageName, event.getWindowId(), eventTime);
                 }
             }
             return;
         }
 
         if (eventType != AccessibilityEvent.TYPE_WINDOW_STATE_CHANGED) return;
-        prefs.edit().putString(KEY_LAST_FOREGROUND_PACKAGE, packageName).apply();
+        hideBlockScreenIfLeft(packageName);
+        // System UI, a gaveta de notificações, o teclado e a tela de bloqueio nativa abrem por
+        // cima do app sem tirá-lo da frente: não contam como primeiro plano (o rebloqueio de
+        // expiração e o addThirtyMinutes dependem disso).
+        if (!isOverlayWindow(packageName, event.getClassName())) {
+            foregroundJournal.setForeground(packageName);
+            browserInFront = policy.browserProfile(packageName) != null;
+            applyEventFilter();
+        }
 
         // Sentinela ganhou foco: desliga kill switch e evita loop.
         if (SENTINELA_PACKAGE.equals(packageName) || packageName.equals(getPackageName())) {
-            if (isForceBlockNowEnabled()) {
+            // O evento da própria janela do overlay também vem com este pacote; só a Activity a dispensa.
+            if (MainActivity.class.getName().equals(String.valueOf(event.getClassName()))) {
+                mainHandler.post(blockOverlay::hide);
+            }
+            if (policy.forceBlockNow) {
                 prefs.edit().putBoolean(KEY_FORCE_BLOCK_NOW, false).apply();
                 Log.i(TAG, "Kill switch desativado ao abrir Sentinela");
             }
@@ -177,293 +338,291 @@ public class SentinelaAccessibilityService extends AccessibilityService {
         }
 
         // Debounce global: evita loops de abrir/fechar em cascata.
-        if (isWithinBlockDebounce()) return;
+        if (isWithinBlockDebounce()) {
+            if (wouldBlockApp(policy, packageName)) EngineStats.countDrop(EngineStats.DROP_DEBOUNCE);
+            return;
+        }
 
         // Kill switch imediato do responsável.
-        if (isForceBlockNowEnabled()) {
-            lastBlockAndBringAt = System.currentTimeMillis();
-            performGlobalAction(GLOBAL_ACTION_HOME);
-            bringSentinelaToFront();
+        if (policy.forceBlockNow) {
+            showBlockScreen(policy, packageName, BlockOverlay.REASON_FORCE, null, eventTime);
             return;
         }
 
         // Modo Descanso: bloqueia todos os apps exceto allowlist.
-        if (isRestModeActive() && !isAllowedInRestMode(packageName)) {
-            lastBlockAndBringAt = System.currentTimeMillis();
-            Log.i(TAG, "Modo Descanso: bloqueando app " + packageName);
-            performGlobalAction(GLOBAL_ACTION_HOME);
+        if (policy.restModeActive && !isAllowedInRestMode(packageName)) {
+            showBlockScreen(policy, packageName, BlockOverlay.REASON_REST, null, eventTime);
             return;
         }
 
         // Bloqueio de apps (lista bloqueados), exceto unlocks temporários ativos.
-        if (isBlockingEnabled() && isBlocked(packageName)) {
-            if (hasActiveTemporaryUnlock(packageName)) {
+        if (policy.blockingEnabled && policy.isBlockedPackage(packageName)) {
+            if (unlocks.isUnlocked(packageName)) {
+                EngineStats.countDrop(EngineStats.DROP_TEMP_UNLOCK);
+                EngineStats.countRule(EngineRules.TEMP_UNLOCK);
+                decisions.append(EngineRules.TEMP_UNLOCK, false, packageName, null, sinceEventMicros(eventTime));
                 return;
             }
-            lastBlockAndBringAt = System.currentTimeMillis();
-            Log.i(TAG, "Bloqueando app: " + packageName);
-            performGlobalAction(GLOBAL_ACTION_HOME);
+            showBlockScreen(policy, packageName, BlockOverlay.REASON_APP, null, eventTime);
             return;
         }
 
         // Bloqueio de URL em navegadores (proteção local)
-        if (isUrlBlockingEnabled() && BROWSER_PACKAGES.contains(packageName)) {
-            scheduleUrlChecks(packageName);
+        if (policy.urlBlockingEnabled && policy.browserProfile(packageName) != null) {
+            scheduleUrlChecks(packageName, event.getWindowId(), eventTime);
         }
 
         // ANTI-TAMPERING: monitora configurações quando usuário tenta desativar proteção ou desinstalar
-        if (isAntiTamperingEnabled() && "com.android.settings".equals(packageName)) {
-            handler.postDelayed(this::checkAndBlockDangerousSettings, 150);
+        if (policy.antiTamperingEnabled && SETTINGS_PACKAGE.equals(packageName)) {
+            worker.submit(packageName, event.getWindowId(), SETTINGS_CHECK_DELAY_MS, () -> {
+                checkAndBlockDangerousSettings(eventTime);
+                return InspectionWorker.STOP;
+            });
         }
     }
 
-    /** Agenda 5 checagens de URL (100ms, 500ms, 1s, 2s, 3s) para cobrir abertura e navegação. */
-    private void scheduleUrlChecks(String packageName) {
-        final long[] delays = {100, 500, 1000, 2000, 3000};
-        for (long d : delays) {
-            handler.postDelayed(() -> checkAndBlockUrlInBrowser(packageName), d);
+    private static final long SETTINGS_CHECK_DELAY_MS = 150L;
+    private static final String SETTINGS_PACKAGE = "com.android.settings";
+
+    /**
+     * Agenda checagens adaptativas de URL (ver AdaptiveUrlSchedule) para cobrir abertura e
+     * navegação. Um novo agendamento para o mesmo pacote + janela substitui o pendente.
+     */
+    private void scheduleUrlChecks(String packageName, int windowId, long eventTime) {
+        AdaptiveUrlSchedule schedule = new AdaptiveUrlSchedule(eventTime);
+        worker.submit(packageName, windowId, schedule.firstDelay(),
+                () -> checkAndBlockUrlInBrowser(packageName, windowId, schedule));
+    }
+
+    /**
+     * O evento de conteúdo pode ter vindo da barra de endereço: o perfil tem ids e o evento
+     * mudou texto. SUBTREE e UNDEFINED (rolagem, redesenho da página) ficam com o fallback de
+     * URL_RECHECK_FALLBACK_MS: o id do nó de origem não é público sem o IPC do getSource.
+     * Só lê campos do evento, sem IPC.
+     */
+    private static boolean mayComeFromUrlBar(AccessibilityEvent event, BrowserProfile browser) {
+        if (browser.urlBarIds.length == 0) return false;
+        return (event.getContentChangeTypes() & AccessibilityEvent.CONTENT_CHANGE_TYPE_TEXT) != 0;
+    }
+
+    /** Cópia que sobrevive ao onAccessibilityEvent (o original é reciclado pelo sistema). */
+    private static AccessibilityEvent copyEvent(AccessibilityEvent event) {
+        return Build.VERSION.SDK_INT >= Build.VERSION_CODES.R
+                ? new AccessibilityEvent(event) : AccessibilityEvent.obtain(event);
+    }
+
+    /**
+     * No worker: resolve o nó de origem do evento e, se for a barra, guarda o nó (a checagem
+     * lê só ele, sem buscar na raiz) e agenda as checagens sem esperar o debounce.
+     */
+    private long onUrlBarCandidate(String packageName, AccessibilityEvent event, long eventTime) {
+        BrowserProfile browser = policy.browserProfile(packageName);
+        AccessibilityNodeInfo source = browser == null ? null : event.getSource();
+        int windowId = event.getWindowId();
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.R) event.recycle();
+        if (source == null) return InspectionWorker.STOP;
+        if (!browser.isUrlBar(source.getViewIdResourceName())) {
+            source.recycle();
+            return InspectionWorker.STOP;
         }
+        lastUrlCheckPackage = packageName;
+        lastUrlCheckScheduledAt = System.currentTimeMillis();
+        urlBars.put(packageName, source);
+        scheduleUrlChecks(packageName, windowId, eventTime);
+        return InspectionWorker.STOP;
     }
 
+    /** Textos que marcam tela sensível em Configurações (sem diferenciar maiúsculas). */
+    private static final KeywordMatcher TAMPERING_NEEDLES = KeywordMatcher.build(Arrays.asList("sentinela", "vpn"));
+
+    /** Varredura de texto da árvore (só na thread do worker). */
+    private final TreeTextScanner treeScanner = new TreeTextScanner();
+
     /**
      * Verifica se a tela atual é de rede sensível ou informações do app Sentinela.
      * Se for, executa GLOBAL_ACTION_HOME para impedir a ação.
      */
-    private void checkAndBlockDangerousSettings() {
+    private void checkAndBlockDangerousSettings(long eventTime) {
+        boolean traced = EngineTrace.begin(EngineTrace.SETTINGS_CHECK);
         try {
             AccessibilityNodeInfo root = getRootInActiveWindow();
             if (root == null) return;
 
-            String text = gatherAllText(root).toLowerCase();
+            CharSequence hit = treeScanner.scan(root, text -> TAMPERING_NEEDLES.find(text) >= 0);
             root.recycle();
 
             // Bloqueia apenas quando for tela sensível de rede ou App Info do Sentinela
-            if (text.contains("sentinela") || text.contains("vpn")) {
-                Log.i(TAG, "Anti-tampering: bloqueando acesso sensível em Settings");
+            if (hit != null) {
+                EngineStats.countRule(EngineRules.TAMPERING);
+                decisions.append(EngineRules.TAMPERING, true, SETTINGS_PACKAGE, hit.toString(), sinceEventMicros(eventTime));
                 performGlobalAction(GLOBAL_ACTION_HOME);
             }
         } catch (Exception e) {
             Log.w(TAG, "checkAndBlockDangerousSettings: " + e.getMessage());
+        } finally {
+            EngineTrace.end(traced);
         }
     }
 
-    private boolean isUrlBlockingEnabled() {
-        return prefs.getBoolean(KEY_URL_BLOCKING_ENABLED, false);
-    }
-
-    private Set<String> getBlockedDomains() {
-        return loadStringSet(KEY_BLOCKED_DOMAINS);
-    }
-
-    private Set<String> getWhitelistDomains() {
-        return loadStringSet(KEY_WHITELIST_DOMAINS);
-    }
-
-    private Set<String> getBlockedKeywords() {
-        return loadStringSet(KEY_BLOCKED_KEYWORDS);
-    }
-
-    private Set<String> loadStringSet(String key) {
-        Set<String> set = new HashSet<>();
+    /** Offsets da URL encontrada na checagem atual (reutilizado; só na thread do worker). */
+    private final UrlScanner.Span urlSpan = new UrlScanner.Span();
+    /** Nó da barra de endereço de cada navegador (só na thread do worker). */
+    private final UrlBarCache urlBars = new UrlBarCache();
+    /** Veredictos por janela/URL da versão atual da política (só na thread do worker). */
+    private final UrlVerdictCache verdictCache = new UrlVerdictCache();
+
+    /** Checagem de URL; retorna o atraso até a próxima (agenda adaptativa) ou InspectionWorker.STOP. */
+    private long checkAndBlockUrlInBrowser(String packageName, int windowId, AdaptiveUrlSchedule schedule) {
+        boolean traced = EngineTrace.begin(EngineTrace.URL_CHECK);
+        long eventTime = schedule.takeEventTime();
         try {
-            String raw = prefs.getString(key, "[]");
-            JSONArray arr = new JSONArray(raw);
-            boolean isKeywords = KEY_BLOCKED_KEYWORDS.equals(key);
-            for (int i = 0; i < arr.length(); i++) {
-                String s = arr.optString(i, "");
-                if (s != null && !s.trim().isEmpty()) {
-                    s = s.trim().toLowerCase(Locale.ROOT);
-                    if (isKeywords) s = s.replaceAll("\\s+", "");
-                    if (!s.isEmpty()) set.add(s);
-                }
+            PolicySnapshot policy = this.policy;
+            if (!policy.urlBlockingEnabled) return InspectionWorker.STOP;
+            BrowserProfile browser = policy.browserProfile(packageName);
+            if (browser == null) return InspectionWorker.STOP;
+            String foreground = ForegroundJournal.current();
+            if (!packageName.equals(foreground)) {
+                EngineStats.countDrop(EngineStats.DROP_NOT_FOREGROUND);
+                return InspectionWorker.STOP;
             }
-        } catch (Exception e) {
-            Log.w(TAG, "loadStringSet " + key + ": " + e.getMessage());
-        }
-        return set;
-    }
-
-    private static final Pattern DOMAIN_EXTRACT = Pattern.compile(
-            "https?://([^/\\\\?#]+)", Pattern.CASE_INSENSITIVE);
-
-    private void checkAndBlockUrlInBrowser(String packageName) {
-        try {
-            String foreground = prefs.getString(KEY_LAST_FOREGROUND_PACKAGE, "");
-            if (!packageName.equals(foreground)) return;
 
-            AccessibilityNodeInfo root = getRootInActiveWindow();
-            if (root == null) return;
-
-            String url = extractUrlFromRoot(root);
-            root.recycle();
-
-            if (url == null || url.isEmpty()) return;
+            UrlScanner.Span span = urlSpan;
+            CharSequence text = null;
+            // Caminho comum: relê só o nó da barra em cache; a raiz é buscada quando ele fica obsoleto.
+            long t = System.nanoTime();
+            AccessibilityNodeInfo bar = urlBars.get(packageName);
+            EngineStats.recordSince(EngineStats.STAGE_TREE_FETCH, t);
+            boolean barValid = bar != null && browser.isUrlBar(bar.getViewIdResourceName());
+            if (barValid) {
+                t = System.nanoTime();
+                text = readUrlBar(bar, browser, span);
+                EngineStats.recordSince(EngineStats.STAGE_URL_EXTRACT, t);
+            }
+            if (text == null && (!barValid || browser.textFallback)) {
+                t = System.nanoTime();
+                AccessibilityNodeInfo root = getRootInActiveWindow();
+                EngineStats.recordSince(EngineStats.STAGE_TREE_FETCH, t);
+                if (root == null) {
+                    EngineStats.countDrop(EngineStats.DROP_NO_URL);
+                    return schedule.onNoUrl();
+                }
+                t = System.nanoTime();
+                text = barValid ? findUrlFromText(root, span) : extractUrlFromRoot(root, browser, span);
+                EngineStats.recordSince(EngineStats.STAGE_URL_EXTRACT, t);
+                root.recycle();
+            }
 
-            String domain = extractDomain(url);
-            if (domain == null || domain.isEmpty()) return;
+            if (text == null) {
+                EngineStats.countDrop(EngineStats.DROP_NO_URL);
+                return schedule.onNoUrl();
+            }
 
-            if (shouldBlockUrl(url, domain)) {
-                Log.i(TAG, "URL bloqueada: " + url);
-                lastBlockAndBringAt = System.currentTimeMillis();
-                performGlobalAction(GLOBAL_ACTION_HOME);
-                bringSentinelaToFront();
+            t = System.nanoTime();
+            UrlVerdict verdict = verdictCache.evaluate(policy, windowId, text, span);
+            EngineStats.recordSince(EngineStats.STAGE_MATCH, t);
+            if (verdict.rule == UrlVerdict.RULE_WHITELIST) {
+                EngineStats.countDrop(EngineStats.DROP_WHITELISTED);
+                EngineStats.countRule(EngineRules.WHITELIST);
+                decisions.append(EngineRules.WHITELIST, false, packageName,
+                        text.subSequence(span.hostStart, span.hostEnd).toString(), sinceEventMicros(eventTime));
+            }
+            if (verdict.isBlocked()) {
+                if (verdict.rule == UrlVerdict.RULE_KEYWORD) {
+                    showBlockScreen(policy, packageName, BlockOverlay.REASON_KEYWORD, verdict.keyword, eventTime);
+                } else {
+                    showBlockScreen(policy, packageName, BlockOverlay.REASON_DOMAIN,
+                            text.subSequence(span.hostStart, span.hostEnd).toString(), eventTime);
+                }
+                return InspectionWorker.STOP;
             }
+            return schedule.onUrl(text, span.start, span.end);
         } catch (Exception e) {
             Log.w(TAG, "checkAndBlockUrlInBrowser: " + e.getMessage());
+            return InspectionWorker.STOP;
+        } finally {
+            EngineTrace.end(traced);
         }
     }
 
-    private String extractUrlFromRoot(AccessibilityNodeInfo root) {
+    /**
+     * Localiza a URL exibida no navegador. Retorna o texto que a contém (com os offsets em
+     * span) ou null. Faz uma única busca por view id, a do perfil do navegador em primeiro plano.
+     */
+    private CharSequence extractUrlFromRoot(AccessibilityNodeInfo root, BrowserProfile browser,
+                                            UrlScanner.Span span) {
+        boolean traced = EngineTrace.begin(EngineTrace.EXTRACT_URL);
         try {
             if (root == null) return null;
-            String url = findUrlByViewId(root, "com.android.chrome:id/url_bar");
-            if (url != null) return url;
-            url = findUrlByViewId(root, "org.mozilla.firefox:id/mozac_browser_toolbar_url_view");
-            if (url != null) return url;
-            url = findUrlByViewId(root, "org.mozilla.fenix:id/mozac_browser_toolbar_url_view");
-            if (url != null) return url;
-            url = findUrlByViewId(root, "com.sec.android.app.sbrowser:id/location_bar_edit_text");
-            if (url != null) return url;
-            url = findUrlByViewId(root, "com.microsoft.emmx:id/url_bar");
-            if (url != null) return url;
-            url = findUrlByViewId(root, "com.opera.browser:id/url_field");
-            if (url != null) return url;
-            url = findUrlByViewId(root, "com.opera.mini.native:id/url_view");
-            if (url != null) return url;
-            url = findUrlFromText(root);
-            if (url != null) return url;
-            return extractUrlFromGatheredText(gatherAllText(root));
+            int ids = browser.urlBarIds.length;
+            if (ids > 0) {
+                int preferred = urlBars.preferredUrlBarId(browser.packageName) % ids;
+                CharSequence text = findUrlByViewId(root, browser.urlBarIds[preferred], browser, span);
+                if (text != null) return text;
+                // Próxima checagem tenta o id seguinte (perfis com mais de uma barra possível).
+                urlBars.setPreferredUrlBarId(browser.packageName, (preferred + 1) % ids);
+            }
+            return browser.textFallback ? findUrlFromText(root, span) : null;
         } catch (Exception e) {
             return null;
+        } finally {
+            EngineTrace.end(traced);
         }
     }
 
-    private String findUrlByViewId(AccessibilityNodeInfo root, String viewId) {
+    /** Busca a barra pelo view id; o primeiro nó achado fica em cache para as próximas checagens. */
+    private CharSequence findUrlByViewId(AccessibilityNodeInfo root, String viewId, BrowserProfile browser,
+                                         UrlScanner.Span span) {
+        CharSequence found = null;
         try {
             List<AccessibilityNodeInfo> nodes = root.findAccessibilityNodeInfosByViewId(viewId);
-            if (nodes != null && !nodes.isEmpty()) {
+            if (nodes != null) {
+                boolean cached = false;
                 for (AccessibilityNodeInfo node : nodes) {
-                    if (node != null && node.getText() != null) {
-                        String text = node.getText().toString().trim();
-                        if (text.startsWith("http://") || text.startsWith("https://")) {
-                            node.recycle();
-                            return text;
-                        }
+                    if (node == null) continue;
+                    if (found == null) found = readUrlBar(node, browser, span);
+                    if (!cached) {
+                        urlBars.put(browser.packageName, node);
+                        cached = true;
+                    } else {
+                        node.recycle();
                     }
                 }
-                for (AccessibilityNodeInfo node : nodes) {
-                    if (node != null) node.recycle();
-                }
             }
         } catch (Exception ignored) {}
+        return found;
+    }
+
+    /** Texto da barra se ele contém uma URL (offsets em span), senão null. */
+    private static CharSequence readUrlBar(AccessibilityNodeInfo node, BrowserProfile browser,
+                                           UrlScanner.Span span) {
+        CharSequence text = node.getText();
+        if (text != null && UrlScanner.parse(text, browser.urlStart(text), text.length(), browser.bareHost, span)) {
+            return text;
+        }
         return null;
     }
 
-    private String findUrlFromText(AccessibilityNodeInfo root) {
+    private CharSequence findUrlFromText(AccessibilityNodeInfo root, UrlScanner.Span span) {
         try {
             List<AccessibilityNodeInfo> nodes = root.findAccessibilityNodeInfosByText("http");
-            if (nodes != null && !nodes.isEmpty()) {
+            CharSequence found = null;
+            if (nodes != null) {
                 for (AccessibilityNodeInfo node : nodes) {
                     if (node == null) continue;
                     CharSequence text = node.getText();
-                    if (text != null) {
-                        String s = text.toString().trim();
-                        if (s.startsWith("http://") || s.startsWith("https://")) {
-                            node.recycle();
-                            return s;
-                        }
+                    if (found == null && text != null && UrlScanner.parse(text, 0, text.length(), false, span)) {
+                        found = text;
                     }
                     node.recycle();
                 }
             }
-            return extractUrlFromGatheredText(gatherAllText(root));
+            if (found != null) return found;
+            return treeScanner.scan(root, text -> UrlScanner.find(text, 0, span));
         } catch (Exception e) {
             return null;
         }
     }
 
-    private String extractUrlFromGatheredText(String text) {
-        if (text == null || text.isEmpty()) return null;
-        int idx = text.indexOf("https://");
-        if (idx < 0) idx = text.indexOf("http://");
-        if (idx < 0) return null;
-        int schemeLen = (idx + 8 <= text.length() && text.startsWith("https://", idx)) ? 8 : 7;
-        int end = idx + schemeLen;
-        while (end < text.length()) {
-            char c = text.charAt(end);
-            if (c == ' ' || c == '\n' || c == '\r' || c == '"' || c == '\'' || c == ')' || c == '>') break;
-            end++;
-        }
-        return text.substring(idx, end);
-    }
-
-    private String extractDomain(String url) {
-        if (url == null) return null;
-        try {
-            java.util.regex.Matcher m = DOMAIN_EXTRACT.matcher(url);
-            if (m.find()) {
-                String host = m.group(1);
-                if (host != null) {
-                    int portIdx = host.indexOf(':');
-                    if (portIdx >= 0) host = host.substring(0, portIdx);
-                    return host.toLowerCase(Locale.ROOT);
-                }
-            }
-        } catch (Exception ignored) {}
-        return null;
-    }
-
-    private static final Set<String> DEFAULT_KEYWORDS = new HashSet<>(Arrays.asList(
-            "bet", "porn", "xxx", "casino", "apostas", "onlyfans", "pornhub", "xvideos", "xnxx", "bet365", "betano"
-    ));
-
-    private boolean shouldBlockUrl(String url, String domain) {
-        Set<String> whitelist = getWhitelistDomains();
-        for (String wl : whitelist) {
-            if (wl == null || wl.isEmpty()) continue;
-            if (domain.equals(wl) || domain.endsWith("." + wl)) return false;
-        }
-
-        Set<String> blacklist = getBlockedDomains();
-        for (String bl : blacklist) {
-            if (bl == null || bl.isEmpty()) continue;
-            if (domain.equals(bl) || domain.endsWith("." + bl) || bl.endsWith("." + domain)) return true;
-        }
-
-        String urlLower = url.toLowerCase(Locale.ROOT);
-        Set<String> keywords = getBlockedKeywords();
-        for (String kw : keywords) {
-            if (kw != null && !kw.isEmpty() && urlLower.contains(kw)) return true;
-        }
-        for (String kw : DEFAULT_KEYWORDS) {
-            if (urlLower.contains(kw)) return true;
-        }
-        return false;
-    }
-
-    private String gatherAllText(AccessibilityNodeInfo node) {
-        StringBuilder sb = new StringBuilder();
-        gatherTextRecursive(node, sb);
-        return sb.toString();
-    }
-
-    private void gatherTextRecursive(AccessibilityNodeInfo node, StringBuilder sb) {
-        if (node == null) return;
-        try {
-            CharSequence text = node.getText();
-            if (text != null && text.length() > 0) sb.append(text).append(" ");
-            CharSequence desc = node.getContentDescription();
-            if (desc != null && desc.length() > 0) sb.append(desc).append(" ");
-            for (int i = 0; i < node.getChildCount(); i++) {
-                AccessibilityNodeInfo child = node.getChild(i);
-                if (child != null) {
-                    gatherTextRecursive(child, sb);
-                    child.recycle();
-                }
-            }
-        } catch (Exception ignored) {}
-    }
-
     @Override
     public void onInterrupt() {}
 
@@ -471,28 +630,92 @@ public class SentinelaAccessibilityService extends AccessibilityService {
     public void onServiceConnected() {
         super.onServiceConnected();
         Log.i(TAG, "AccessibilityService conectado - Anti-tampering disponível");
+        applyEventFilter();
+        running = this;
+        ReactPrewarmer.prewarm(this, "serviço conectado");
+    }
+
+    @Override
+    public void onTrimMemory(int level) {
+        super.onTrimMemory(level);
+        if (foregroundJournal != null) foregroundJournal.flush();
+        if (unlocks != null) unlocks.flush();
+        ReactPrewarmer.onTrimMemory(this, level);
     }
 
     @Override
     public boolean onUnbind(Intent intent) {
         Log.i(TAG, "AccessibilityService desconectado");
+        if (running == this) running = null;
+        if (foregroundJournal != null) foregroundJournal.flush();
         return true; // true = redemand binding para resiliência
     }
 
-    private boolean isBlockingEnabled() {
-        return prefs.getBoolean(KEY_ENABLED, false);
+    /**
+     * Desbloqueio temporário expirou (timer do TemporaryUnlockRegistry): se o app continua em
+     * primeiro plano, bloqueia agora em vez de esperar o próximo TYPE_WINDOW_STATE_CHANGED.
+     * Roda no worker.
+     */
+    private void blockIfStillForeground(String packageName) {
+        PolicySnapshot policy = this.policy;
+        if (!policy.blockingEnabled || !policy.isBlockedPackage(packageName)) return;
+        if (!packageName.equals(ForegroundJournal.current()) || unlocks.isUnlocked(packageName)) return;
+        showBlockScreen(policy, packageName, BlockOverlay.REASON_APP, null, 0L);
+    }
+
+    /**
+     * Tira o app bloqueado da frente. Com a tela nativa, a decisão vira um overlay no próximo
+     * frame (o kill switch ainda abre o app, que o desliga; o overlay cobre até ele aparecer).
+     * No modo antigo é HOME e, para kill switch e URLs, a MainActivity. eventTime é o uptime
+     * do evento que decidiu o bloqueio (0 quando não há um) para a latência ponta a ponta.
+     * A decisão vai para o DecisionLog. Qualquer thread.
+     */
+    private void showBlockScreen(PolicySnapshot policy, String packageName, int reason, String detail,
+                                 long eventTime) {
+        long start = System.nanoTime();
+        lastBlockAndBringAt = System.currentTimeMillis();
+        int rule = EngineRules.forReason(reason);
+        EngineStats.countRule(rule);
+        if (policy.nativeBlockScreen) {
+            BlockScreenLatency.markDecision(BlockScreenLatency.PATH_NATIVE);
+            mainHandler.post(() -> blockOverlay.show(packageName, reason, detail));
+            if (reason == BlockOverlay.REASON_FORCE) bringSentinelaToFront();
+        } else {
+            performGlobalAction(GLOBAL_ACTION_HOME);
+            if (reason == BlockOverlay.REASON_FORCE || reason == BlockOverlay.REASON_DOMAIN
+                    || reason == BlockOverlay.REASON_KEYWORD) {
+                BlockScreenLatency.markDecision(BlockScreenLatency.PATH_APP);
+                BlockScreenLatency.markDecision(ReactPrewarmer.isWarm(this)
+                        ? BlockScreenLatency.APP_INTERACTIVE_WARM : BlockScreenLatency.APP_INTERACTIVE_COLD);
+                bringSentinelaToFront();
+            }
+        }
+        EngineStats.recordSince(EngineStats.STAGE_ACTION, start);
+        long sinceEvent = sinceEventMicros(eventTime);
+        if (eventTime > 0) EngineStats.recordMicros(EngineStats.STAGE_END_TO_END, sinceEvent);
+        decisions.append(rule, true, packageName, detail, sinceEvent);
     }
 
-    private boolean isRestModeActive() {
-        return prefs.getBoolean(KEY_REST_MODE_ACTIVE, false);
+    /** µs desde eventTime (uptime do AccessibilityEvent), ou 0 sem evento. */
+    private static long sinceEventMicros(long eventTime) {
+        return eventTime > 0 ? (SystemClock.uptimeMillis() - eventTime) * 1_000L : 0L;
     }
 
-    private boolean isAntiTamperingEnabled() {
-        return prefs.getBoolean(KEY_ANTI_TAMPERING, true);
+    /** O evento de janela levaria a um bloqueio de app (mesma ordem do onAccessibilityEvent). */
+    private boolean wouldBlockApp(PolicySnapshot policy, String packageName) {
+        if (policy.forceBlockNow) return true;
+        if (policy.restModeActive && !isAllowedInRestMode(packageName)) return true;
+        return policy.blockingEnabled && policy.isBlockedPackage(packageName) && !unlocks.isUnlocked(packageName);
     }
 
-    private boolean isForceBlockNowEnabled() {
-        return prefs.getBoolean(KEY_FORCE_BLOCK_NOW, false);
+    /** Outro app (não a System UI nem o teclado) ganhou a frente: a tela nativa sai. */
+    private void hideBlockScreenIfLeft(String packageName) {
+        if (packageName.equals(getPackageName()) || isOverlayPackage(packageName)) return;
+        mainHandler.post(() -> {
+            if (blockOverlay.isShowing() && !packageName.equals(blockOverlay.getBlockedPackage())) {
+                blockOverlay.hide();
+            }
+        });
     }
 
     private void bringSentinelaToFront() {
@@ -508,25 +731,33 @@ public class SentinelaAccessibilityService extends AccessibilityService {
         }
     }
 
-    private boolean isBlocked(String packageName) {
-        Set<String> blocked = prefs.getStringSet(KEY_BLOCKED, new HashSet<>());
-        return blocked != null && blocked.contains(packageName);
+    /**
+     * Contadores dos componentes do motor, com chaves "componente.contador". Os do serviço só
+     * aparecem com ele conectado; leituras sem lock, aproximadas mas sem custo para o worker.
+     */
+    static Map<String, Long> runtimeStats() {
+        Map<String, Long> out = new LinkedHashMap<>();
+        out.put("bloom.probes", DomainBloom.getProbeCount());
+        out.put("bloom.negatives", DomainBloom.getNegativeCount());
+        out.put("bloom.falsePositives", DomainBloom.getFalsePositiveCount());
+        SentinelaAccessibilityService service = running;
+        if (service == null) return out;
+        out.put("worker.queueDepth", (long) service.worker.getQueueDepth());
+        out.put("worker.submitted", service.worker.getSubmittedCount());
+        out.put("worker.executed", service.worker.getExecutedCount());
+        out.put("worker.dropped", service.worker.getDroppedCount());
+        out.put("urlBarCache.hits", service.urlBars.getHitCount());
+        out.put("urlBarCache.misses", service.urlBars.getMissCount());
+        out.put("urlBarCache.stale", service.urlBars.getStaleCount());
+        out.put("verdictCache.hits", service.verdictCache.getHitCount());
+        out.put("verdictCache.misses", service.verdictCache.getMissCount());
+        out.put("verdictCache.evictions", service.verdictCache.getEvictionCount());
+        out.put("scanner.lastVisited", (long) service.treeScanner.getLastVisitedCount());
+        out.put("policy.version", service.policy.version);
+        return out;
     }
 
-    private boolean hasActiveTemporaryUnlock(String packageName) {
-        try {
-            String raw = prefs.getString(AppBlockModule.getKeyTempUnlocks(), "[]");
-            JSONArray arr = new JSONArray(raw);
-            long now = System.currentTimeMillis();
-            for (int i = 0; i < arr.length(); i++) {
-                JSONObject o = arr.getJSONObject(i);
-                if (packageName.equals(o.optString("pkg", "")) && o.optLong("exp", 0) > now) {
-                    return true;
-                }
-            }
-        } catch (Exception ignored) {}
-        return false;
-    }
+    static boolean isRunning() { return running != null; }
 
     static String getPrefsName() { return PREFS; }
     static String getKeyBlocked() { return KEY_BLOCKED; }
@@ -539,4 +770,9 @@ public class SentinelaAccessibilityService extends AccessibilityService {
     static String getKeyBlockedDomains() { return KEY_BLOCKED_DOMAINS; }
     static String getKeyWhitelistDomains() { return KEY_WHITELIST_DOMAINS; }
     static String getKeyBlockedKeywords() { return KEY_BLOCKED_KEYWORDS; }
+    static String getKeyNativeBlockScreen() { return KEY_NATIVE_BLOCK_SCREEN; }
+    static String getKeyReactPrewarmEnabled() { return KEY_REACT_PREWARM_ENABLED; }
+    static String getKeyEngineTraceEnabled() { return KEY_ENGINE_TRACE_ENABLED; }
+    static String getKeyBrowserProfilesOverride() { return KEY_BROWSER_PROFILES_OVERRIDE; }
+    static String getKeyPolicyFileVersion() { return KEY_POLICY_FILE_VERSION; }
 }
@@ -0,0 +1,225 @@
+package com.sentinelaapp;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Process;
+import android.util.Log;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Desbloqueios temporários de apps (pacote -> expiração em ms de relógio), compartilhados
+ * pelo AppBlockModule e pelo serviço no mesmo processo. Antes cada abertura de app bloqueado
+ * fazia parse do JSON temp_app_unlocks do SentinelaPrefs; agora a consulta é um get num mapa.
+ * Um min-heap por expiração agenda uma única varredura para a próxima expiração; gravações
+ * são agrupadas (no máximo uma a cada PERSIST_DELAY_MS) no arquivo SentinelaState.
+ * A mesma varredura avisa o {@link ExpiryListener} (o serviço), que rebloqueia o app se ele
+ * ainda estiver em primeiro plano: há um único timer ativo, qualquer que seja o número de entradas.
+ */
+final class TemporaryUnlockRegistry {
+    private static final String TAG = "SentinelaUnlocks";
+    private static final String PREFS = "SentinelaState";
+    private static final String KEY_UNLOCKS = "temp_unlocks";
+    static final long PERSIST_DELAY_MS = 1_000L;
+
+    private static volatile TemporaryUnlockRegistry instance;
+
+    /** Chamado na thread do registro para cada desbloqueio que expirou. */
+    interface ExpiryListener {
+        void onUnlockExpired(String packageName);
+    }
+
+    /** Desbloqueio ativo: pacote e expiração. */
+    static final class Unlock {
+        final String packageName;
+        final long expiresAt;
+
+        Unlock(String packageName, long expiresAt) {
+            this.packageName = packageName;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    private final SharedPreferences store;
+    private final SharedPreferences legacyPrefs;
+    private final Handler handler;
+    private final Map<String, Long> expiries = new ConcurrentHashMap<>();
+    /** Guardado por this. Pode ter entradas velhas (expiração trocada); são ignoradas na varredura. */
+    private final PriorityQueue<Unlock> heap = new PriorityQueue<>(8, (a, b) -> Long.compare(a.expiresAt, b.expiresAt));
+    private final AtomicBoolean persistPending = new AtomicBoolean();
+    private final Runnable sweep = this::sweep;
+    /** Expiração para a qual a varredura está agendada (Long.MAX_VALUE: nenhuma). Guardado por this. */
+    private long sweepAt = Long.MAX_VALUE;
+    /** Cópia de sweepAt para {@link #sweepIfDue()} sem lock. */
+    private volatile long nextExpiry = Long.MAX_VALUE;
+    private volatile ExpiryListener expiryListener;
+
+    private TemporaryUnlockRegistry(Context context) {
+        store = context.getSharedPreferences(PREFS, Context.MODE_PRIVATE);
+        legacyPrefs = context.getSharedPreferences(SentinelaAccessibilityService.getPrefsName(), Context.MODE_PRIVATE);
+        HandlerThread thread = new HandlerThread(TAG, Process.THREAD_PRIORITY_BACKGROUND);
+        thread.start();
+        handler = new Handler(thread.getLooper());
+        load();
+    }
+
+    static TemporaryUnlockRegistry get(Context context) {
+        TemporaryUnlockRegistry registry = instance;
+        if (registry != null) return registry;
+        synchronized (TemporaryUnlockRegistry.class) {
+            if (instance == null) instance = new TemporaryUnlockRegistry(context.getApplicationContext());
+            return instance;
+        }
+    }
+
+    /** O pacote tem desbloqueio que ainda não expirou. */
+    boolean isUnlocked(String packageName) {
+        Long expiresAt = expiries.get(packageName);
+        return expiresAt != null && expiresAt > System.currentTimeMillis();
+    }
+
+    /** Desbloqueia até expiresAt; um desbloqueio já ativo mais longo prevalece. */
+    void add(String packageName, long expiresAt) {
+        synchronized (this) {
+            if (!putLocked(packageName, expiresAt)) return;
+            scheduleSweepLocked();
+        }
+        schedulePersist();
+    }
+
+    private boolean putLocked(String packageName, long expiresAt) {
+        if (expiresAt <= System.currentTimeMillis()) return false;
+        Long current = expiries.get(packageName);
+        if (current != null && current >= expiresAt) return false;
+        expiries.put(packageName, expiresAt);
+        heap.add(new Unlock(packageName, expiresAt));
+        return true;
+    }
+
+    /** Desbloqueios ativos, do que expira primeiro ao último. */
+    List<Unlock> listActive() {
+        long now = System.currentTimeMillis();
+        List<Unlock> out = new ArrayList<>();
+        for (Map.Entry<String, Long> e : expiries.entrySet()) {
+            if (e.getValue() > now) out.add(new Unlock(e.getKey(), e.getValue()));
+        }
+        out.sort((a, b) -> Long.compare(a.expiresAt, b.expiresAt));
+        return out;
+    }
+
+    void setExpiryListener(ExpiryListener listener) {
+        expiryListener = listener;
+    }
+
+    /**
+     * Antecipa a varredura se a próxima expiração já passou. O timer usa o relógio de uptime,
+     * que para em sono profundo; o serviço chama isto a cada evento para não depender dele.
+     */
+    void sweepIfDue() {
+        if (nextExpiry <= System.currentTimeMillis()) handler.post(sweep);
+    }
+
+    /** Grava agora se houver mudança pendente (onTrimMemory/onDestroy do serviço). */
+    void flush() {
+        if (persistPending.getAndSet(false)) persist();
+    }
+
+    private void schedulePersist() {
+        if (persistPending.compareAndSet(false, true)) {
+            handler.postDelayed(this::flush, PERSIST_DELAY_MS);
+        }
+    }
+
+    /** Remove o que expirou e reagenda para a próxima expiração do heap. */
+    private void sweep() {
+        List<String> expired = null;
+        long now = System.currentTimeMillis();
+        synchronized (this) {
+            handler.removeCallbacks(sweep);
+            sweepAt = Long.MAX_VALUE;
+            nextExpiry = Long.MAX_VALUE;
+            while (!heap.isEmpty() && heap.peek().expiresAt <= now) {
+                Unlock top = heap.poll();
+                // Só remove se o mapa ainda aponta para esta expiração (não foi estendida).
+                if (expiries.remove(top.packageName, top.expiresAt)) {
+                    if (expired == null) expired = new ArrayList<>();
+                    expired.add(top.packageName);
+                }
+            }
+            scheduleSweepLocked();
+        }
+        if (expired == null) return;
+        schedulePersist();
+        ExpiryListener listener = expiryListener;
+        if (listener == null) return;
+        for (String packageName : expired) {
+            try {
+                listener.onUnlockExpired(packageName);
+            } catch (RuntimeException e) {
+                Log.w(TAG, "ExpiryListener: " + e.getMessage());
+            }
+        }
+    }
+
+    private void scheduleSweepLocked() {
+        if (heap.isEmpty()) return;
+        long next = heap.peek().expiresAt;
+        if (next >= sweepAt) return;
+        handler.removeCallbacks(sweep);
+        sweepAt = next;
+        nextExpiry = next;
+        handler.postDelayed(sweep, Math.max(0L, next - System.currentTimeMillis()));
+    }
+
+    private void persist() {
+        try {
+            JSONArray arr = new JSONArray();
+            long now = System.currentTimeMillis();
+            for (Map.Entry<String, Long> e : expiries.entrySet()) {
+                if (e.getValue() <= now) continue;
+                JSONObject o = new JSONObject();
+                o.put("pkg", e.getKey());
+                o.put("exp", (long) e.getValue());
+                arr.put(o);
+            }
+            store.edit().putString(KEY_UNLOCKS, arr.toString()).apply();
+            if (legacyPrefs.contains(AppBlockModule.getKeyTempUnlocks())) {
+                legacyPrefs.edit().remove(AppBlockModule.getKeyTempUnlocks()).apply();
+            }
+        } catch (Exception e) {
+            Log.w(TAG, "Falha ao gravar desbloqueios: " + e.getMessage());
+        }
+    }
+
+    /** Lê o SentinelaState ou, em instalações antigas, o temp_app_unlocks do SentinelaPrefs. */
+    private void load() {
+        String raw = store.getString(KEY_UNLOCKS, null);
+        boolean legacy = raw == null;
+        if (legacy) raw = legacyPrefs.getString(AppBlockModule.getKeyTempUnlocks(), null);
+        if (raw == null) return;
+        try {
+            JSONArray arr = new JSONArray(raw);
+            synchronized (this) {
+                for (int i = 0; i < arr.length(); i++) {
+                    JSONObject o = arr.getJSONObject(i);
+                    String packageName = o.optString("pkg", "");
+                    if (!packageName.isEmpty()) putLocked(packageName, o.optLong("exp", 0));
+                }
+                scheduleSweepLocked();
+            }
+        } catch (Exception e) {
+            Log.w(TAG, "Desbloqueios ilegíveis, ignorados: " + e.getMessage());
+        }
+        if (legacy) schedulePersist();
+    }
+}
@@ -0,0 +1,119 @@
+package com.sentinelaapp;
+
+import android.view.accessibility.AccessibilityNodeInfo;
+
+/**
+ * Percorre a árvore de acessibilidade em profundidade, sem recursão (pilha explícita),
+ * entregando o texto e a contentDescription de cada nó a um {@link Visitor}.
+ * Substitui o gatherAllText: não monta uma String com a tela inteira, para no primeiro
+ * acerto e respeita limites de nós e de profundidade (cada getChild é uma IPC).
+ * A raiz continua com o chamador; os nós obtidos aqui são reciclados em todos os caminhos.
+ * Reutilizável, mas não thread-safe (uma instância por thread do worker).
+ */
+final class TreeTextScanner {
+    static final int DEFAULT_MAX_NODES = 500;
+    static final int DEFAULT_MAX_DEPTH = 40;
+
+    interface Visitor {
+        /** Retorna true para encerrar a varredura neste texto. */
+        boolean onText(CharSequence text);
+    }
+
+    private AccessibilityNodeInfo[] nodes = new AccessibilityNodeInfo[64];
+    private int[] depths = new int[64];
+    private int top;
+    private int lastVisited;
+
+    CharSequence scan(AccessibilityNodeInfo root, Visitor visitor) {
+        return scan(root, DEFAULT_MAX_NODES, DEFAULT_MAX_DEPTH, visitor);
+    }
+
+    /**
+     * Visita até maxNodes nós a no máximo maxDepth níveis abaixo da raiz, em pré-ordem.
+     * Retorna o texto em que o visitor parou, ou null se a árvore (ou o orçamento) acabou.
+     */
+    CharSequence scan(AccessibilityNodeInfo root, int maxNodes, int maxDepth, Visitor visitor) {
+        if (root == null) return null;
+        int visited = 0;
+        CharSequence hit = null;
+        top = 0;
+        boolean traced = EngineTrace.begin(EngineTrace.TREE_SCAN);
+        push(root, 0);
+        try {
+            while (top > 0 && visited < maxNodes) {
+                top--;
+                AccessibilityNodeInfo node = nodes[top];
+                int depth = depths[top];
+                nodes[top] = null;
+                try {
+                    visited++;
+                    hit = visit(node, visitor);
+                    if (hit != null) break;
+                    if (depth < maxDepth) pushChildren(node, depth + 1, maxNodes - visited - top);
+                } finally {
+                    if (node != root) node.recycle();
+                }
+            }
+        } finally {
+            while (top > 0) {
+                top--;
+                AccessibilityNodeInfo node = nodes[top];
+                nodes[top] = null;
+                if (node != root) node.recycle();
+            }
+            lastVisited = visited;
+            EngineTrace.counter(EngineTrace.COUNTER_NODES_VISITED, visited);
+            EngineTrace.end(traced);
+        }
+        return hit;
+    }
+
+    /** Nós visitados na última varredura. */
+    int getLastVisitedCount() {
+        return lastVisited;
+    }
+
+    private static CharSequence visit(AccessibilityNodeInfo node, Visitor visitor) {
+        CharSequence text = node.getText();
+        if (text != null && text.length() > 0 && visitor.onText(text)) return text;
+        CharSequence desc = node.getContentDescription();
+        if (desc != null && desc.length() > 0 && visitor.onText(desc)) return desc;
+        return null;
+    }
+
+    /** Empilha até budget filhos; a ordem é invertida para o primeiro filho sair primeiro. */
+    private void pushChildren(AccessibilityNodeInfo node, int depth, int budget) {
+        int base = top;
+        try {
+            int count = node.getChildCount();
+            for (int i = 0; i < count && top - base < budget; i++) {
+                AccessibilityNodeInfo child = node.getChild(i);
+                if (child != null) push(child, depth);
+            }
+        } catch (RuntimeException ignored) {
+            // Nó obsoleto no meio da leitura: segue com os filhos já obtidos.
+        }
+        for (int i = base, j = top - 1; i < j; i++, j--) {
+            AccessibilityNodeInfo n = nodes[i];
+            nodes[i] = nodes[j];
+            nodes[j] = n;
+            int d = depths[i];
+            depths[i] = depths[j];
+            depths[j] = d;
+        }
+    }
+
+    private void push(AccessibilityNodeInfo node, int depth) {
+        if (top == nodes.length) {
+            AccessibilityNodeInfo[] grownNodes = new AccessibilityNodeInfo[top * 2];
+            System.arraycopy(nodes, 0, grownNodes, 0, top);
+            nodes = grownNodes;
+            int[] grownDepths = new int[top * 2];
+            System.arraycopy(depths, 0, grownDepths, 0, top);
+            depths = grownDepths;
+        }
+        nodes[top] = node;
+        depths[top] = depth;
+        top++;
+    }
+}
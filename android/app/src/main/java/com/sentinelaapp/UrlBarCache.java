@@ -0,0 +1,105 @@
+package com.sentinelaapp;
+
+import android.view.accessibility.AccessibilityNodeInfo;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Nó da barra de endereço de cada navegador, identificado por janela + view id.
+ * Com ele a checagem de URL lê só esse nó (refresh) em vez de buscar na árvore inteira;
+ * a busca pela raiz volta a ser feita apenas quando o nó fica obsoleto. Guarda também qual
+ * dos urlBarIds do perfil achou a barra por último, que sobrevive às trocas de política.
+ * Dono dos nós guardados (recicla ao substituir). Usado só na thread do InspectionWorker;
+ * os contadores são lidos também pela ponte (runtimeStats).
+ */
+final class UrlBarCache {
+    private final Map<String, Entry> entries = new HashMap<>();
+    /** Índice em BrowserProfile.urlBarIds que achou a barra por último, por pacote. */
+    private final Map<String, Integer> preferredIds = new HashMap<>();
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong stale = new AtomicLong();
+
+    /**
+     * Nó atualizado da barra do pacote, ou null. Um nó que não pode mais ser atualizado,
+     * mudou de janela/id ou saiu da tela é descartado.
+     */
+    AccessibilityNodeInfo get(String packageName) {
+        Entry entry = entries.get(packageName);
+        if (entry == null) {
+            misses.incrementAndGet();
+            return null;
+        }
+        AccessibilityNodeInfo node = entry.node;
+        boolean valid;
+        try {
+            valid = node.refresh()
+                    && node.getWindowId() == entry.windowId
+                    && entry.viewId.equals(node.getViewIdResourceName())
+                    && node.isVisibleToUser();
+        } catch (Exception e) {
+            valid = false;
+        }
+        if (!valid) {
+            entries.remove(packageName);
+            node.recycle();
+            stale.incrementAndGet();
+            return null;
+        }
+        hits.incrementAndGet();
+        return node;
+    }
+
+    /** Guarda o nó da barra (assume a posse; nós sem view id são reciclados). */
+    void put(String packageName, AccessibilityNodeInfo node) {
+        String viewId = node.getViewIdResourceName();
+        if (viewId == null) {
+            node.recycle();
+            return;
+        }
+        Entry previous = entries.put(packageName, new Entry(node, node.getWindowId(), viewId));
+        if (previous != null && previous.node != node) previous.node.recycle();
+    }
+
+    /** Índice do id a tentar primeiro (apenas uma dica; 0 sem histórico). */
+    int preferredUrlBarId(String packageName) {
+        Integer index = preferredIds.get(packageName);
+        return index == null ? 0 : index;
+    }
+
+    void setPreferredUrlBarId(String packageName, int index) {
+        preferredIds.put(packageName, index);
+    }
+
+    void clear() {
+        for (Entry entry : entries.values()) entry.node.recycle();
+        entries.clear();
+    }
+
+    long getHitCount() {
+        return hits.get();
+    }
+
+    long getMissCount() {
+        return misses.get();
+    }
+
+    long getStaleCount() {
+        return stale.get();
+    }
+
+    private static final class Entry {
+        final AccessibilityNodeInfo node;
+        final int windowId;
+        final String viewId;
+
+        Entry(AccessibilityNodeInfo node, int windowId, String viewId) {
+            this.node = node;
+            this.windowId = windowId;
+            this.viewId = viewId;
+        }
+    }
+}
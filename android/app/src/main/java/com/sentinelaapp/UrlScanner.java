@@ -0,0 +1,187 @@
+package com.sentinelaapp;
+
+/**
+ * Scanner de URLs escrito à mão, substitui o regex DOMAIN_EXTRACT e o indexOf/substring
+ * sobre o texto coletado da árvore. Trabalha direto sobre CharSequence e devolve offsets
+ * num {@link Span} reutilizável, sem criar Strings.
+ */
+final class UrlScanner {
+
+    /** Limites de uma URL dentro do texto de origem. Reutilizável; não é thread-safe. */
+    static final class Span {
+        int start;
+        int end;
+        /** True quando a URL tem http:// ou https:// explícito. */
+        boolean hasScheme;
+        int hostStart;
+        int hostEnd;
+        /** Porta numérica, ou -1. */
+        int port;
+        /** Início do path/query/fragment (== end quando não há). */
+        int pathStart;
+
+        int hostLength() {
+            return hostEnd - hostStart;
+        }
+
+        void clear() {
+            start = end = hostStart = hostEnd = pathStart = 0;
+            port = -1;
+            hasScheme = false;
+        }
+    }
+
+    private UrlScanner() {}
+
+    /**
+     * Interpreta text[start, end) como uma URL (ex.: texto da barra de endereço), ignorando
+     * espaços nas pontas. Aceita http/https e, com allowBareHost, hosts sem esquema como
+     * "example.com/path". Retorna false se o texto não for uma URL com host.
+     */
+    static boolean parse(CharSequence text, int start, int end, boolean allowBareHost, Span out) {
+        out.clear();
+        if (text == null) return false;
+        while (start < end && isSpace(text.charAt(start))) start++;
+        while (end > start && isSpace(text.charAt(end - 1))) end--;
+        if (start >= end) return false;
+
+        int schemeLen = httpSchemeLength(text, start, end);
+        int hostStart;
+        if (schemeLen > 0) {
+            out.hasScheme = true;
+            hostStart = start + schemeLen;
+        } else {
+            if (!allowBareHost) return false;
+            hostStart = start;
+        }
+
+        // Autoridade: mesmo conjunto de terminadores do regex antigo ([^/\\?#]+).
+        int authorityEnd = hostStart;
+        while (authorityEnd < end) {
+            char c = text.charAt(authorityEnd);
+            if (c == '/' || c == '\\' || c == '?' || c == '#') break;
+            authorityEnd++;
+        }
+        // user:senha@host — o host é o que vem depois do último '@'.
+        for (int i = authorityEnd - 1; i >= hostStart; i--) {
+            if (text.charAt(i) == '@') {
+                hostStart = i + 1;
+                break;
+            }
+        }
+
+        int hostEnd = hostStart;
+        if (hostEnd < authorityEnd && text.charAt(hostEnd) == '[') {
+            while (hostEnd < authorityEnd && text.charAt(hostEnd) != ']') hostEnd++;
+            if (hostEnd < authorityEnd) hostEnd++;
+        } else {
+            while (hostEnd < authorityEnd && text.charAt(hostEnd) != ':') hostEnd++;
+        }
+
+        int port = -1;
+        if (hostEnd < authorityEnd && text.charAt(hostEnd) == ':') {
+            port = 0;
+            for (int i = hostEnd + 1; i < authorityEnd; i++) {
+                char c = text.charAt(i);
+                if (c < '0' || c > '9' || port > 65535) {
+                    port = -1;
+                    break;
+                }
+                port = port * 10 + (c - '0');
+            }
+            if (port < 0 && !out.hasScheme) return false;
+        }
+
+        // "example.com." e "example.com" são o mesmo host.
+        while (hostEnd > hostStart && text.charAt(hostEnd - 1) == '.') hostEnd--;
+        if (hostEnd <= hostStart) return false;
+        if (!out.hasScheme && !isBareHost(text, start, end, hostStart, hostEnd)) return false;
+
+        out.start = start;
+        out.end = end;
+        out.hostStart = hostStart;
+        out.hostEnd = hostEnd;
+        out.port = port;
+        out.pathStart = authorityEnd;
+        return true;
+    }
+
+    /**
+     * Procura a primeira URL http(s) em um texto livre (texto coletado da árvore de nós).
+     * A URL termina no primeiro espaço, quebra de linha, aspas, ')' ou '>'.
+     */
+    static boolean find(CharSequence text, int from, Span out) {
+        out.clear();
+        if (text == null) return false;
+        int length = text.length();
+        for (int i = Math.max(0, from); i + 7 <= length; i++) {
+            char c = text.charAt(i);
+            if (c != 'h' && c != 'H') continue;
+            int schemeLen = httpSchemeLength(text, i, length);
+            if (schemeLen == 0) continue;
+            int end = i + schemeLen;
+            while (end < length && !isUrlDelimiter(text.charAt(end))) end++;
+            if (parse(text, i, end, false, out)) return true;
+            i = end - 1;
+        }
+        out.clear();
+        return false;
+    }
+
+    /** Tamanho de "http://" ou "https://" (sem diferenciar maiúsculas) em text[start], ou 0. */
+    static int httpSchemeLength(CharSequence text, int start, int end) {
+        if (end - start < 7) return 0;
+        if (!regionMatchesLower(text, start, "http")) return 0;
+        int i = start + 4;
+        if (text.charAt(i) == 's' || text.charAt(i) == 'S') i++;
+        if (end - i < 3) return 0;
+        if (text.charAt(i) != ':' || text.charAt(i + 1) != '/' || text.charAt(i + 2) != '/') return 0;
+        return i + 3 - start;
+    }
+
+    private static boolean regionMatchesLower(CharSequence text, int start, String lower) {
+        for (int i = 0; i < lower.length(); i++) {
+            char c = text.charAt(start + i);
+            if (c >= 'A' && c <= 'Z') c = (char) (c + ('a' - 'A'));
+            if (c != lower.charAt(i)) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Sem esquema só aceitamos o que parece domínio: sem espaços, caracteres de hostname
+     * e pelo menos um ponto ("buscar bet" ou "about:blank" não são URLs).
+     */
+    private static boolean isBareHost(CharSequence text, int start, int end, int hostStart, int hostEnd) {
+        for (int i = start; i < end; i++) {
+            if (isSpace(text.charAt(i))) return false;
+        }
+        if (hostStart != start) return false;
+        boolean dot = false;
+        char prev = '.';
+        for (int i = hostStart; i < hostEnd; i++) {
+            char c = text.charAt(i);
+            if (c == '.') {
+                if (prev == '.') return false;
+                dot = true;
+            } else if (!isHostChar(c)) {
+                return false;
+            }
+            prev = c;
+        }
+        return dot;
+    }
+
+    private static boolean isHostChar(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9')
+                || c == '-' || c == '_' || c >= 0x80;
+    }
+
+    private static boolean isUrlDelimiter(char c) {
+        return c == ' ' || c == '\n' || c == '\r' || c == '"' || c == '\'' || c == ')' || c == '>';
+    }
+
+    private static boolean isSpace(char c) {
+        return c == ' ' || c == '\t' || c == '\n' || c == '\r' || c == '\u00A0';
+    }
+}
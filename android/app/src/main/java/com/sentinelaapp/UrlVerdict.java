@@ -0,0 +1,29 @@
+package com.sentinelaapp;
+
+/**
+ * Resultado da avaliação de uma URL pela política.
+ * Instâncias são pré-criadas por política (uma por keyword), então avaliar não aloca.
+ */
+final class UrlVerdict {
+    static final int RULE_NONE = 0;
+    static final int RULE_WHITELIST = 1;
+    static final int RULE_DOMAIN = 2;
+    static final int RULE_KEYWORD = 3;
+
+    static final UrlVerdict ALLOWED = new UrlVerdict(RULE_NONE, null);
+    static final UrlVerdict WHITELISTED = new UrlVerdict(RULE_WHITELIST, null);
+    static final UrlVerdict BLOCKED_DOMAIN = new UrlVerdict(RULE_DOMAIN, null);
+
+    final int rule;
+    /** Keyword que casou (só para RULE_KEYWORD). */
+    final String keyword;
+
+    UrlVerdict(int rule, String keyword) {
+        this.rule = rule;
+        this.keyword = keyword;
+    }
+
+    boolean isBlocked() {
+        return rule == RULE_DOMAIN || rule == RULE_KEYWORD;
+    }
+}
@@ -0,0 +1,115 @@
+package com.sentinelaapp;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Veredictos de URL já calculados, para checagens repetidas da mesma barra de endereço.
+ * Dois níveis: a última URL vista em cada janela (custa só uma comparação de texto) e um
+ * LRU limitado por URL normalizada. Tudo vale para uma versão da política; quando o
+ * BlockingModule grava uma lista nova o snapshot muda de versão e o cache é esvaziado.
+ * Usado só na thread do InspectionWorker; os contadores podem ser lidos de qualquer thread.
+ */
+final class UrlVerdictCache {
+    static final int MAX_ENTRIES = 256;
+    /** Janelas lembradas no memo; acima disso ele recomeça (normalmente são uma ou duas). */
+    private static final int MAX_WINDOWS = 16;
+
+    private long policyVersion = -1L;
+    private final Map<Integer, Memo> lastByWindow = new HashMap<>();
+    private final LinkedHashMap<String, UrlVerdict> lru = new LinkedHashMap<String, UrlVerdict>(32, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, UrlVerdict> eldest) {
+            if (size() <= MAX_ENTRIES) return false;
+            evictions.incrementAndGet();
+            return true;
+        }
+    };
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    /** Veredicto de text[span.start, span.end) na janela; calcula pela política só quando não há. */
+    UrlVerdict evaluate(PolicySnapshot policy, int windowId, CharSequence text, UrlScanner.Span span) {
+        if (policy.version != policyVersion) {
+            lru.clear();
+            lastByWindow.clear();
+            policyVersion = policy.version;
+        }
+        Memo memo = lastByWindow.get(windowId);
+        if (memo != null && regionEqualsIgnoreCase(memo.url, text, span.start, span.end)) {
+            hits.incrementAndGet();
+            return memo.verdict;
+        }
+
+        String url = normalize(text, span.start, span.end);
+        UrlVerdict verdict = lru.get(url);
+        if (verdict != null) {
+            hits.incrementAndGet();
+        } else {
+            misses.incrementAndGet();
+            verdict = policy.evaluateUrl(text, span);
+            lru.put(url, verdict);
+        }
+        if (memo == null) {
+            if (lastByWindow.size() >= MAX_WINDOWS) lastByWindow.clear();
+            lastByWindow.put(windowId, new Memo(url, verdict));
+        } else {
+            memo.url = url;
+            memo.verdict = verdict;
+        }
+        return verdict;
+    }
+
+    void clear() {
+        lru.clear();
+        lastByWindow.clear();
+        policyVersion = -1L;
+    }
+
+    long getHitCount() {
+        return hits.get();
+    }
+
+    long getMissCount() {
+        return misses.get();
+    }
+
+    long getEvictionCount() {
+        return evictions.get();
+    }
+
+    /** Chave do LRU: a URL com maiúsculas ASCII rebaixadas (domínio e palavras não diferenciam caixa). */
+    private static String normalize(CharSequence text, int start, int end) {
+        char[] out = new char[end - start];
+        for (int i = start; i < end; i++) {
+            char c = text.charAt(i);
+            if (c >= 'A' && c <= 'Z') c = (char) (c + ('a' - 'A'));
+            out[i - start] = c;
+        }
+        return new String(out);
+    }
+
+    private static boolean regionEqualsIgnoreCase(String lower, CharSequence text, int start, int end) {
+        if (lower.length() != end - start) return false;
+        for (int i = 0; i < lower.length(); i++) {
+            char c = text.charAt(start + i);
+            if (c >= 'A' && c <= 'Z') c = (char) (c + ('a' - 'A'));
+            if (c != lower.charAt(i)) return false;
+        }
+        return true;
+    }
+
+    private static final class Memo {
+        String url;
+        UrlVerdict verdict;
+
+        Memo(String url, UrlVerdict verdict) {
+            this.url = url;
+            this.verdict = verdict;
+        }
+    }
+}
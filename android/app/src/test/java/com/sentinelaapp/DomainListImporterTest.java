@@ -0,0 +1,172 @@
+package com.sentinelaapp;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/** Parsing dos formatos de lista e a mescla k-way dos runs ordenados. */
+public class DomainListImporterTest {
+    @Rule
+    public final TemporaryFolder tmp = new TemporaryFolder();
+
+    private static final DomainListImporter.ProgressListener NO_PROGRESS = (phase, read, total, entries) -> { };
+
+    private static List<String> parse(String line) {
+        List<String> out = new ArrayList<>();
+        DomainListImporter.parseLine(line, out);
+        return out;
+    }
+
+    @Test
+    public void hostsFormatSkipsLeadingAddress() {
+        assertEquals(Collections.singletonList("ads.example.com"), parse("0.0.0.0 ads.example.com"));
+        assertEquals(Arrays.asList("a.com", "b.com"), parse("127.0.0.1\ta.com  b.com"));
+        assertEquals(Collections.singletonList("tracker.net"), parse("::1 tracker.net"));
+        assertEquals(Collections.singletonList("x.org"), parse("   0.0.0.0 x.org   "));
+    }
+
+    @Test
+    public void commentsAreIgnored() {
+        assertEquals(Collections.emptyList(), parse("# comentário"));
+        assertEquals(Collections.emptyList(), parse("   # indentado"));
+        assertEquals(Collections.emptyList(), parse("! comentário do adblock"));
+        assertEquals(Collections.emptyList(), parse(""));
+        assertEquals(Collections.singletonList("a.com"), parse("0.0.0.0 a.com # fim de linha"));
+        assertEquals(Collections.singletonList("a.com"), parse("a.com#colado"));
+    }
+
+    @Test
+    public void plainAndAdblockTokensKeepTheirShape() {
+        assertEquals(Collections.singletonList("example.com"), parse("example.com"));
+        assertEquals(Collections.singletonList("||ads.example.com^"), parse("||ads.example.com^"));
+        assertEquals(Collections.singletonList("||ads.example.com^$third-party"), parse("||ads.example.com^$third-party"));
+    }
+
+    @Test
+    public void normalizeAdblockAndWildcards() {
+        assertEquals("ads.example.com", DomainListImporter.normalize("||ads.example.com^"));
+        assertEquals("ads.example.com", DomainListImporter.normalize("||ads.example.com^$third-party"));
+        assertEquals("example.com", DomainListImporter.normalize("*.example.com"));
+        assertEquals("example.com", DomainListImporter.normalize(".example.com"));
+        assertEquals("example.com", DomainListImporter.normalize("example.com."));
+    }
+
+    @Test
+    public void normalizeLowercasesAsciiAndIdn() {
+        assertEquals("ads.example.com", DomainListImporter.normalize("ADS.Example.COM"));
+        assertEquals("münchen.de", DomainListImporter.normalize("MÜNCHEN.DE"));
+        assertEquals("xn--mnchen-3ya.de", DomainListImporter.normalize("XN--MNCHEN-3YA.DE"));
+        assertEquals("apostas_br.com", DomainListImporter.normalize("apostas_br.com"));
+    }
+
+    @Test
+    public void normalizeRejectsNonDomains() {
+        assertNull(DomainListImporter.normalize("localhost"));
+        assertNull(DomainListImporter.normalize("broadcasthost"));
+        assertNull(DomainListImporter.normalize("0.0.0.0"));
+        assertNull(DomainListImporter.normalize("192.168.0.1"));
+        assertNull(DomainListImporter.normalize("fe80::1"));
+        assertNull(DomainListImporter.normalize("https://example.com/path"));
+        assertNull(DomainListImporter.normalize("a..b.com"));
+        assertNull(DomainListImporter.normalize("exa mple.com"));
+        assertNull(DomainListImporter.normalize("||^"));
+        StringBuilder tooLong = new StringBuilder();
+        while (tooLong.length() <= 253) tooLong.append("abcdefghij.");
+        tooLong.append("com");
+        assertNull(DomainListImporter.normalize(tooLong.toString()));
+    }
+
+    /** Importa text e mescla com existing (null = substituir) num policy.bin novo. */
+    private PolicyFile.Section importList(String text, int chunkBytes, PolicyFile.Section existing,
+                                          int[] written, int[] runs) throws IOException {
+        File runDir = tmp.newFolder();
+        DomainListImporter importer = new DomainListImporter(runDir, NO_PROGRESS, chunkBytes);
+        try {
+            byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+            importer.read(new ByteArrayInputStream(bytes), bytes.length);
+            if (runs != null) runs[0] = runDir.listFiles().length;
+            File file = new File(tmp.getRoot(), "policy-" + runDir.getName() + ".bin");
+            PolicyFile.Writer writer = new PolicyFile.Writer(file, 1L);
+            writer.beginSection(PolicyFile.SECTION_BLACKLIST);
+            written[0] = importer.merge(existing, writer, null);
+            writer.commit();
+            return PolicyFile.map(file).section(PolicyFile.SECTION_BLACKLIST);
+        } finally {
+            importer.close();
+            assertEquals(0, runDir.listFiles().length);
+        }
+    }
+
+    @Test
+    public void mixedFormatsImportSortedAndDeduplicated() throws IOException {
+        String text = "# hosts\n"
+                + "0.0.0.0 ads.example.com\n"
+                + "0.0.0.0 localhost\n"
+                + "||tracker.net^\n"
+                + "! adblock\n"
+                + "Ads.Example.com\n"
+                + "plain.org\n"
+                + "*.tracker.net\n";
+        int[] written = new int[1];
+        PolicyFile.Section section = importList(text, DomainListImporter.CHUNK_BYTES, null, written, null);
+        assertEquals(3, written[0]);
+        assertEquals(3, section.count);
+        assertEquals(Arrays.asList("ads.example.com", "tracker.net", "plain.org"), section.strings(true));
+    }
+
+    @Test
+    public void duplicatesAcrossRunsAreMergedOnce() throws IOException {
+        // Cada run guarda poucos registros; os mesmos domínios se repetem em runs diferentes.
+        StringBuilder text = new StringBuilder();
+        List<String> expected = new ArrayList<>();
+        for (int i = 0; i < 200; i++) expected.add("d" + i + ".com");
+        for (int pass = 0; pass < 3; pass++) {
+            for (int i = 199; i >= 0; i--) text.append("0.0.0.0 D").append(i).append(".com\n");
+        }
+        int[] written = new int[1];
+        int[] runs = new int[1];
+        PolicyFile.Section section = importList(text.toString(), 256, null, written, runs);
+        assertTrue("esperava vários runs, veio " + runs[0], runs[0] > 10);
+        assertEquals(200, written[0]);
+        List<String> got = section.strings(true);
+        Collections.sort(got);
+        Collections.sort(expected);
+        assertEquals(expected, got);
+    }
+
+    @Test
+    public void mergeWithExistingSectionKeepsBothWithoutDuplicates() throws IOException {
+        int[] written = new int[1];
+        PolicyFile.Section existing = importList("a.com\nc.com\ne.com\n", DomainListImporter.CHUNK_BYTES, null,
+                written, null);
+        PolicyFile.Section merged = importList("b.com\nc.com\nd.com\ne.com\n", 8, existing, written, null);
+        assertEquals(5, written[0]);
+        assertEquals(Arrays.asList("a.com", "b.com", "c.com", "d.com", "e.com"), merged.strings(true));
+    }
+
+    @Test
+    public void maxRecordsBoundsTheResult() throws IOException {
+        DomainListImporter importer = new DomainListImporter(tmp.newFolder(), NO_PROGRESS, 64);
+        try {
+            byte[] bytes = "a.com\nb.com\na.com\nc.com\n".getBytes(StandardCharsets.UTF_8);
+            importer.read(new ByteArrayInputStream(bytes), -1);
+            assertTrue(importer.maxRecords(null) >= 3);
+            assertTrue(importer.maxRecords(null) <= 4);
+        } finally {
+            importer.close();
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package com.sentinelaapp;
+
+import static org.junit.Assume.assumeTrue;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * DomainTable mapeada contra DomainTrie em heap numa lista acima de
+ * PolicySnapshot.MAPPED_TABLE_THRESHOLD. Só roda com
+ * ./gradlew :app:testDebugUnitTest -Dsentinela.benchmarks=true (resultado no log do teste).
+ */
+public class DomainTableBenchmark {
+    private static final int ENTRIES = 200_000;
+    private static final int QUERIES = 1_000_000;
+
+    @Rule
+    public final TemporaryFolder tmp = new TemporaryFolder();
+
+    @Test
+    public void mappedTableVersusTrie() throws IOException {
+        assumeTrue(Boolean.getBoolean("sentinela.benchmarks"));
+        List<String> domains = DomainTableTest.syntheticDomains(ENTRIES, 1L);
+        DomainTable table = DomainTableTest.mappedTable(tmp.getRoot(), domains);
+        DomainTrie trie = DomainTrie.build(DomainTableTest.normalized(domains));
+        // Metade das consultas cai na lista (como subdomínio), metade não.
+        List<String> misses = DomainTableTest.syntheticDomains(1024, 2L);
+        String[] queries = new String[2048];
+        for (int i = 0; i < 1024; i++) {
+            queries[2 * i] = "www." + domains.get(i * (ENTRIES / 1024));
+            queries[2 * i + 1] = "www." + misses.get(i);
+        }
+
+        long sink = 0;
+        for (int i = 0; i < QUERIES / 4; i++) {
+            String q = queries[i & 2047];
+            if (table.matches(q, 0, q.length(), true)) sink++;
+            if (trie.matches(q, 0, q.length(), true)) sink++;
+        }
+
+        long start = System.nanoTime();
+        for (int i = 0; i < QUERIES; i++) {
+            String q = queries[i & 2047];
+            if (trie.matches(q, 0, q.length(), true)) sink++;
+        }
+        long trieNs = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        for (int i = 0; i < QUERIES; i++) {
+            String q = queries[i & 2047];
+            if (table.matches(q, 0, q.length(), true)) sink++;
+        }
+        long tableNs = System.nanoTime() - start;
+
+        System.out.printf("DomainTable (%d entradas, índice %d KB): trie %.1f ns/op, tabela %.1f ns/op [%d]%n",
+                table.size(), table.indexBytes() / 1024, (double) trieNs / QUERIES,
+                (double) tableNs / QUERIES, sink);
+    }
+}
@@ -0,0 +1,86 @@
+package com.sentinelaapp;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Random;
+
+/** DomainTable mapeada responde igual ao DomainTrie em heap para a mesma lista. */
+public class DomainTableTest {
+    @Rule
+    public final TemporaryFolder tmp = new TemporaryFolder();
+
+    /** Grava a lista como SECTION_BLACKLIST de um policy.bin e devolve a tabela mapeada. */
+    static DomainTable mappedTable(File dir, Collection<String> domains) throws IOException {
+        File file = new File(dir, "policy.bin");
+        PolicyFile.Writer writer = new PolicyFile.Writer(file, 1L);
+        writer.beginSection(PolicyFile.SECTION_BLACKLIST);
+        for (byte[] record : PolicyFile.encodeRecords(domains, true)) writer.append(record);
+        writer.commit();
+        return new DomainTable(PolicyFile.map(file).section(PolicyFile.SECTION_BLACKLIST));
+    }
+
+    /** Domínios sintéticos com prefixos em comum, para exercitar rótulos vizinhos na ordenação. */
+    static List<String> syntheticDomains(int count, long seed) {
+        String[] tlds = {"com", "net", "org", "com.br", "io", "xyz"};
+        Random random = new Random(seed);
+        List<String> out = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            String name = Long.toString(random.nextInt(count * 4), 36);
+            String domain = name + "." + tlds[random.nextInt(tlds.length)];
+            if (random.nextInt(4) == 0) domain = "cdn" + random.nextInt(10) + "." + domain;
+            out.add(domain);
+        }
+        return out;
+    }
+
+    @Test
+    public void matchesLikeTrie() throws IOException {
+        List<String> domains = new ArrayList<>(Arrays.asList(
+                "example.com", "ads.tracker.net", "bet", "münchen.de", "a.b.c.d.org", "example.com.br"));
+        domains.addAll(syntheticDomains(5_000, 1L));
+        DomainTable table = mappedTable(tmp.getRoot(), domains);
+        DomainTrie trie = DomainTrie.build(normalized(domains));
+        assertEquals(trie.size(), table.size());
+
+        List<String> queries = new ArrayList<>(Arrays.asList(
+                "example.com", "WWW.Example.com", "notexample.com", "com", "tracker.net", "x.ads.tracker.net",
+                "casino.bet", "bet", "münchen.de", "b.c.d.org", "x.a.b.c.d.org", "example.com.br",
+                "example.co", "", "."));
+        queries.addAll(syntheticDomains(5_000, 2L));
+        for (String q : queries) {
+            for (boolean sub : new boolean[] {false, true}) {
+                assertEquals(q + " sub=" + sub, trie.matches(q, 0, q.length(), sub), table.matches(q, 0, q.length(), sub));
+            }
+        }
+    }
+
+    @Test
+    public void longHostsGrowTheKeyBuffer() throws IOException {
+        StringBuilder longHost = new StringBuilder();
+        for (int i = 0; i < 200; i++) longHost.append("label").append(i).append('.');
+        longHost.append("example.com");
+        DomainTable table = mappedTable(tmp.getRoot(), Arrays.asList("example.com", "other.org"));
+        assertEquals(true, table.matches(longHost, 0, longHost.length(), false));
+        assertEquals(false, table.matches("x.other.net", 0, 11, false));
+        assertEquals(true, table.matches("sub.other.org", 0, 13, false));
+    }
+
+    static List<String> normalized(Collection<String> domains) {
+        List<String> out = new ArrayList<>(domains.size());
+        for (String d : domains) {
+            String n = PolicyFile.normalizeDomain(d);
+            if (n != null) out.add(n);
+        }
+        return out;
+    }
+}
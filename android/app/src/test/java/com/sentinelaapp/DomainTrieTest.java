@@ -0,0 +1,134 @@
+package com.sentinelaapp;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+/** DomainTrie contra o laço de equals/endsWith que ele substituiu no PolicySnapshot. */
+public class DomainTrieTest {
+
+    /** isWhitelisted antigo: o host ou um domínio pai está na lista. */
+    static boolean legacyWhitelisted(List<String> list, String domain) {
+        for (String wl : list) {
+            if (domain.equals(wl) || domain.endsWith("." + wl)) return true;
+        }
+        return false;
+    }
+
+    /** isBlacklisted antigo: também bloqueia quando a lista tem um subdomínio do host. */
+    static boolean legacyBlacklisted(List<String> list, String domain) {
+        for (String bl : list) {
+            if (domain.equals(bl) || domain.endsWith("." + bl)) return true;
+            if (bl.length() >= domain.length() + 1
+                    && bl.charAt(bl.length() - domain.length() - 1) == '.'
+                    && bl.endsWith(domain)) return true;
+        }
+        return false;
+    }
+
+    private static void assertEquivalent(List<String> list, String host) {
+        DomainTrie trie = DomainTrie.build(list);
+        String domain = host.toLowerCase(Locale.ROOT);
+        assertEquals("whitelist " + host, legacyWhitelisted(list, domain), trie.matches(host, false));
+        assertEquals("blacklist " + host, legacyBlacklisted(list, domain), trie.matches(host, true));
+    }
+
+    @Test
+    public void suffixIsNotALabelBoundary() {
+        DomainTrie trie = DomainTrie.build(Collections.singletonList("example.com"));
+        assertTrue(trie.matches("example.com", false));
+        assertTrue(trie.matches("www.example.com", false));
+        assertTrue(trie.matches("a.b.example.com", false));
+        assertFalse(trie.matches("notexample.com", false));
+        assertFalse(trie.matches("xample.com", false));
+        assertFalse(trie.matches("example.com.evil.org", false));
+        assertFalse(trie.matches("example.co", false));
+        assertFalse(trie.matches("com", false));
+    }
+
+    @Test
+    public void listedSubdomainRuleOnlyWithFlag() {
+        DomainTrie trie = DomainTrie.build(Collections.singletonList("ads.example.com"));
+        assertFalse(trie.matches("example.com", false));
+        assertTrue(trie.matches("example.com", true));
+        assertTrue(trie.matches("com", true));
+        // "ample.com" não é domínio pai de ads.example.com.
+        assertFalse(trie.matches("ample.com", true));
+        assertFalse(trie.matches("other.example.com", true));
+    }
+
+    @Test
+    public void singleLabelEntriesAndCase() {
+        DomainTrie trie = DomainTrie.build(Arrays.asList("bet", "münchen.de"));
+        assertTrue(trie.matches("casino.BET", false));
+        // Só letras ASCII são dobradas; hosts IDN chegam em minúsculas do navegador.
+        assertTrue(trie.matches("Www.München.de", false));
+        assertFalse(trie.matches("alphabet", false));
+        assertFalse(trie.matches("bet.com", false));
+    }
+
+    @Test
+    public void offsetsLimitTheHost() {
+        DomainTrie trie = DomainTrie.build(Collections.singletonList("example.com"));
+        String url = "https://www.example.com/path";
+        assertTrue(trie.matches(url, 8, 23, false));
+        assertFalse(trie.matches(url, 8, 22, false));
+        assertFalse(trie.matches(url, 8, 8, false));
+    }
+
+    @Test
+    public void emptyTrieMatchesNothing() {
+        assertTrue(DomainTrie.EMPTY.isEmpty());
+        assertFalse(DomainTrie.EMPTY.matches("example.com", true));
+        assertFalse(DomainTrie.EMPTY.matches(null, true));
+        DomainTrie trie = DomainTrie.build(Arrays.asList("", null, "a.com", "a.com"));
+        assertEquals(1, trie.size());
+    }
+
+    @Test
+    public void boundaryCorpusMatchesLegacy() {
+        List<String> list = Arrays.asList("example.com", "ads.tracker.net", "bet", "co.uk", "x.y.z.org",
+                "b.example.com");
+        String[] hosts = {"example.com", "notexample.com", "www.example.com", "b.example.com", "c.example.com",
+                "tracker.net", "nottracker.net", "ads.tracker.net", "s.ads.tracker.net", "casino.bet", "alphabet",
+                "bbc.co.uk", "co.uk", "uk", "y.z.org", "z.org", "org", "w.x.y.z.org", "xx.y.z.org", "Example.COM"};
+        for (String host : hosts) assertEquivalent(list, host);
+    }
+
+    @Test
+    public void randomCorpusMatchesLegacy() {
+        // Alfabeto pequeno: muitos rótulos iguais e sufixos parciais ("ab" x "b").
+        String[] labels = {"a", "b", "ab", "ba", "aab", "com", "net", "co"};
+        Random random = new Random(7);
+        for (int round = 0; round < 200; round++) {
+            List<String> list = new ArrayList<>();
+            int n = 1 + random.nextInt(8);
+            for (int i = 0; i < n; i++) list.add(randomDomain(random, labels));
+            DomainTrie trie = DomainTrie.build(list);
+            for (int q = 0; q < 50; q++) {
+                String host = randomDomain(random, labels);
+                assertEquals(list + " / " + host, legacyWhitelisted(list, host), trie.matches(host, false));
+                assertEquals(list + " / " + host, legacyBlacklisted(list, host), trie.matches(host, true));
+            }
+        }
+    }
+
+    private static String randomDomain(Random random, String[] labels) {
+        int n = 1 + random.nextInt(4);
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < n; i++) {
+            if (i > 0) sb.append('.');
+            sb.append(labels[random.nextInt(labels.length)]);
+        }
+        return sb.toString();
+    }
+}
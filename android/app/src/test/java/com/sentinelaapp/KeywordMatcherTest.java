@@ -0,0 +1,121 @@
+package com.sentinelaapp;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+/** KeywordMatcher (Aho-Corasick) contra o laço de contains que ele substituiu. */
+public class KeywordMatcherTest {
+
+    /** findKeyword antigo: primeira keyword da lista contida na URL em minúsculas. */
+    static String legacyFind(List<String> keywords, String url) {
+        String lower = url.toLowerCase(Locale.ROOT);
+        for (String kw : keywords) {
+            if (lower.contains(kw)) return kw;
+        }
+        return null;
+    }
+
+    private static String find(KeywordMatcher matcher, String text) {
+        int i = matcher.find(text);
+        return i < 0 ? null : matcher.keyword(i);
+    }
+
+    @Test
+    public void overlappingPatterns() {
+        KeywordMatcher m = KeywordMatcher.build(Arrays.asList("he", "she", "his", "hers"));
+        assertEquals("she", find(m, "ushers"));
+        assertEquals("his", find(m, "this"));
+        assertEquals("he", find(m, "ahe"));
+        assertEquals(null, find(m, "hs"));
+    }
+
+    @Test
+    public void keywordInsideAnotherIsFoundThroughDictionaryLinks() {
+        // "posta" termina dentro de "apostas" antes de "apostas" terminar.
+        KeywordMatcher m = KeywordMatcher.build(Arrays.asList("apostas", "posta"));
+        assertEquals("posta", find(m, "https://apostas.com"));
+        // "bet" é sufixo de "alphabet": terminando juntas, vale a mais longa (a do próprio estado);
+        // sem "alphabet" completo, "bet" casa pelo link de falha.
+        m = KeywordMatcher.build(Arrays.asList("alphabet", "bet"));
+        assertEquals("alphabet", find(m, "alphabet"));
+        assertEquals("bet", find(m, "alphabxbet"));
+        assertEquals("bet", find(m, "alphbet"));
+    }
+
+    @Test
+    public void failureChainRecoversPartialMatches() {
+        KeywordMatcher m = KeywordMatcher.build(Arrays.asList("abcd", "bce"));
+        assertEquals("bce", find(m, "abce"));
+        m = KeywordMatcher.build(Arrays.asList("aaa"));
+        assertEquals(null, find(m, "aabaa"));
+        assertEquals("aaa", find(m, "aabaaa"));
+    }
+
+    @Test
+    public void earliestEndingKeywordWins() {
+        // O laço antigo devolvia a primeira da lista; o autômato, a que termina primeiro no texto.
+        List<String> keywords = Arrays.asList("casino", "bet");
+        KeywordMatcher m = KeywordMatcher.build(keywords);
+        assertEquals("casino", legacyFind(keywords, "bet-casino"));
+        assertEquals("bet", find(m, "bet-casino"));
+    }
+
+    @Test
+    public void caseInsensitiveAndOffsets() {
+        KeywordMatcher m = KeywordMatcher.build(Collections.singletonList("porn"));
+        assertEquals("porn", find(m, "https://EXAMPLE.com/PoRn"));
+        String url = "https://porn.example.com/";
+        assertEquals(-1, m.find(url, 12, url.length()));
+        assertEquals(0, m.find(url, 8, 12));
+        assertEquals(-1, m.find(url, 8, 11));
+        assertEquals(-1, m.find(null));
+    }
+
+    @Test
+    public void emptyAndDuplicateKeywordsAreIgnored() {
+        KeywordMatcher m = KeywordMatcher.build(Arrays.asList("", null, "bet", "bet"));
+        assertEquals(1, m.size());
+        assertEquals(-1, KeywordMatcher.EMPTY.find("anything"));
+    }
+
+    @Test
+    public void nonAsciiKeywords() {
+        KeywordMatcher m = KeywordMatcher.build(Arrays.asList("apostação", "ставки"));
+        assertEquals("apostação", find(m, "https://x.com/APOSTAÇÃO"));
+        assertEquals("ставки", find(m, "https://x.ru/Ставки"));
+    }
+
+    @Test
+    public void randomCorpusMatchesLegacy() {
+        // Alfabeto pequeno para forçar prefixos e sufixos em comum entre padrões.
+        Random random = new Random(11);
+        for (int round = 0; round < 300; round++) {
+            List<String> keywords = new ArrayList<>();
+            int n = 1 + random.nextInt(6);
+            for (int i = 0; i < n; i++) keywords.add(randomText(random, 1 + random.nextInt(4), "abc"));
+            KeywordMatcher m = KeywordMatcher.build(keywords);
+            for (int q = 0; q < 40; q++) {
+                String text = randomText(random, random.nextInt(16), "abcABC./");
+                String legacy = legacyFind(keywords, text);
+                String found = find(m, text);
+                // Mesma decisão; a keyword reportada pode ser outra (ver earliestEndingKeywordWins).
+                assertEquals(keywords + " / " + text, legacy != null, found != null);
+                if (found != null) assertEquals(true, text.toLowerCase(Locale.ROOT).contains(found));
+            }
+        }
+    }
+
+    private static String randomText(Random random, int length, String alphabet) {
+        StringBuilder sb = new StringBuilder(length);
+        for (int i = 0; i < length; i++) sb.append(alphabet.charAt(random.nextInt(alphabet.length())));
+        return sb.toString();
+    }
+}
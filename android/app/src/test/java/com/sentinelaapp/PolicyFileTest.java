@@ -0,0 +1,188 @@
+package com.sentinelaapp;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/** Formato do policy.bin: ida e volta, arquivos inválidos e troca atômica por temp + rename. */
+public class PolicyFileTest {
+    @Rule
+    public final TemporaryFolder tmp = new TemporaryFolder();
+
+    private File write(String name, long version, List<String> blacklist, List<String> keywords) throws IOException {
+        File file = new File(tmp.getRoot(), name);
+        PolicyFile.Writer writer = new PolicyFile.Writer(file, version);
+        writer.beginSection(PolicyFile.SECTION_BLACKLIST);
+        for (byte[] record : PolicyFile.encodeRecords(blacklist, true)) writer.append(record);
+        writer.endSection();
+        writer.beginSection(PolicyFile.SECTION_KEYWORDS);
+        for (byte[] record : PolicyFile.encodeRecords(keywords, false)) writer.append(record);
+        writer.endSection();
+        writer.writeRawSection(PolicyFile.SECTION_BLACKLIST_FILTER, new byte[] {1, 2, 3}, 7);
+        writer.commit();
+        return file;
+    }
+
+    private static void expectInvalid(ByteBuffer buffer) {
+        try {
+            PolicyFile.parse(buffer);
+            fail("esperava IOException");
+        } catch (IOException expected) {
+            // ok
+        }
+    }
+
+    @Test
+    public void roundTrip() throws IOException {
+        File file = write("policy.bin", 42L, Arrays.asList("Ads.Example.com.", "b.org", "münchen.de", "b.org"),
+                Arrays.asList("Casino ", "bet", "Bet"));
+        PolicyFile policy = PolicyFile.map(file);
+        assertEquals(42L, policy.version);
+
+        PolicyFile.Section blacklist = policy.section(PolicyFile.SECTION_BLACKLIST);
+        assertEquals(3, blacklist.count);
+        // Ordem dos registros: bytes dos rótulos invertidos.
+        assertEquals(Arrays.asList("ads.example.com", "münchen.de", "b.org"), blacklist.strings(true));
+        assertEquals(Arrays.asList("com.example.ads", "de.münchen", "org.b"), blacklist.strings(false));
+        assertEquals(Arrays.asList("bet", "casino"), policy.section(PolicyFile.SECTION_KEYWORDS).strings(false));
+
+        PolicyFile.Section filter = policy.section(PolicyFile.SECTION_BLACKLIST_FILTER);
+        assertEquals(7, filter.count);
+        byte[] raw = new byte[filter.data.limit()];
+        filter.data.duplicate().get(raw);
+        assertArrayEquals(new byte[] {1, 2, 3}, raw);
+
+        PolicyFile.Section missing = policy.section(PolicyFile.SECTION_WHITELIST);
+        assertTrue(missing.isEmpty());
+        assertEquals(Collections.emptyList(), missing.strings(true));
+    }
+
+    @Test
+    public void copySectionKeepsRecords() throws IOException {
+        PolicyFile source = PolicyFile.map(write("a.bin", 1L, Arrays.asList("x.com", "y.com"), Collections.emptyList()));
+        File copy = new File(tmp.getRoot(), "b.bin");
+        PolicyFile.Writer writer = new PolicyFile.Writer(copy, 2L);
+        writer.copySection(source.section(PolicyFile.SECTION_BLACKLIST));
+        writer.commit();
+        PolicyFile.Section section = PolicyFile.map(copy).section(PolicyFile.SECTION_BLACKLIST);
+        assertEquals(2, section.count);
+        assertEquals(Arrays.asList("x.com", "y.com"), section.strings(true));
+    }
+
+    @Test
+    public void truncatedFileIsRejected() throws IOException {
+        File file = write("policy.bin", 1L, Arrays.asList("a.com", "b.com"), Collections.emptyList());
+        byte[] bytes = Files.readAllBytes(file.toPath());
+
+        // Menor que o cabeçalho + diretório.
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.setLength(PolicyFile.DATA_START - 1);
+        }
+        try {
+            PolicyFile.map(file);
+            fail("esperava IOException");
+        } catch (IOException expected) {
+            // ok
+        }
+
+        // Cabeçalho inteiro, mas a seção passa do fim do arquivo.
+        expectInvalid(ByteBuffer.wrap(Arrays.copyOf(bytes, bytes.length - 1)));
+    }
+
+    @Test
+    public void badMagicIsRejected() throws IOException {
+        byte[] bytes = Files.readAllBytes(write("policy.bin", 1L, Collections.singletonList("a.com"),
+                Collections.emptyList()).toPath());
+        bytes[0] ^= 0x20;
+        expectInvalid(ByteBuffer.wrap(bytes));
+    }
+
+    @Test
+    public void unsupportedFormatVersionIsRejected() throws IOException {
+        byte[] bytes = Files.readAllBytes(write("policy.bin", 1L, Collections.singletonList("a.com"),
+                Collections.emptyList()).toPath());
+        ByteBuffer.wrap(bytes).putShort(4, (short) (PolicyFile.FORMAT_VERSION + 1));
+        expectInvalid(ByteBuffer.wrap(bytes));
+    }
+
+    @Test
+    public void tooManySectionsIsRejected() throws IOException {
+        byte[] bytes = Files.readAllBytes(write("policy.bin", 1L, Collections.singletonList("a.com"),
+                Collections.emptyList()).toPath());
+        ByteBuffer.wrap(bytes).putShort(6, (short) (PolicyFile.MAX_SECTIONS + 1));
+        expectInvalid(ByteBuffer.wrap(bytes));
+    }
+
+    @Test
+    public void writerRejectsUnsortedRecords() throws IOException {
+        File file = new File(tmp.getRoot(), "policy.bin");
+        PolicyFile.Writer writer = new PolicyFile.Writer(file, 1L);
+        writer.beginSection(PolicyFile.SECTION_KEYWORDS);
+        writer.append("b".getBytes("UTF-8"));
+        try {
+            writer.append("a".getBytes("UTF-8"));
+            fail("esperava IllegalArgumentException");
+        } catch (IllegalArgumentException expected) {
+            writer.abort();
+        }
+        assertFalse(file.exists());
+        assertFalse(new File(tmp.getRoot(), "policy.bin.tmp").exists());
+    }
+
+    @Test
+    public void originalStaysIntactUntilCommit() throws IOException {
+        File file = write("policy.bin", 1L, Collections.singletonList("old.com"), Collections.emptyList());
+        byte[] before = Files.readAllBytes(file.toPath());
+
+        PolicyFile.Writer writer = new PolicyFile.Writer(file, 2L);
+        writer.beginSection(PolicyFile.SECTION_BLACKLIST);
+        writer.append("com.new".getBytes("UTF-8"));
+        writer.endSection();
+        // Tudo até aqui foi para o temporário.
+        assertTrue(new File(tmp.getRoot(), "policy.bin.tmp").exists());
+        assertArrayEquals(before, Files.readAllBytes(file.toPath()));
+        assertEquals(1L, PolicyFile.map(file).version);
+
+        writer.commit();
+        assertFalse(new File(tmp.getRoot(), "policy.bin.tmp").exists());
+        PolicyFile after = PolicyFile.map(file);
+        assertEquals(2L, after.version);
+        assertEquals(Collections.singletonList("new.com"), after.section(PolicyFile.SECTION_BLACKLIST).strings(true));
+    }
+
+    @Test
+    public void abortKeepsOriginalAndRemovesTemp() throws IOException {
+        File file = write("policy.bin", 1L, Collections.singletonList("old.com"), Collections.emptyList());
+        byte[] before = Files.readAllBytes(file.toPath());
+
+        PolicyFile.Writer writer = new PolicyFile.Writer(file, 2L);
+        writer.beginSection(PolicyFile.SECTION_BLACKLIST);
+        writer.append("com.new".getBytes("UTF-8"));
+        writer.abort();
+
+        assertFalse(new File(tmp.getRoot(), "policy.bin.tmp").exists());
+        assertArrayEquals(before, Files.readAllBytes(file.toPath()));
+    }
+
+    @Test
+    public void reverseLabelsIsItsOwnInverse() {
+        assertEquals("com.example.ads", PolicyFile.reverseLabels("ads.example.com"));
+        assertEquals("ads.example.com", PolicyFile.reverseLabels("com.example.ads"));
+        assertEquals("localhost", PolicyFile.reverseLabels("localhost"));
+    }
+}
@@ -0,0 +1,127 @@
+package com.sentinelaapp;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/** applyDelta: mescla em três vias (existentes, adds, removes) e checagem otimista de versão. */
+public class PolicyStoreTest {
+    @Rule
+    public final TemporaryFolder tmp = new TemporaryFolder();
+
+    private TestContext context;
+
+    @Before
+    public void setUp() {
+        context = new TestContext(tmp.getRoot());
+    }
+
+    private List<String> section(int id) {
+        return PolicyStore.open(context).section(id).strings(id != PolicyFile.SECTION_KEYWORDS);
+    }
+
+    private long delta(int id, long expected, List<String> adds, List<String> removes) throws IOException {
+        return PolicyStore.applyDelta(context, id, expected, adds, removes);
+    }
+
+    @Test
+    public void addsMergeIntoExistingInOrder() throws IOException {
+        PolicyStore.replaceSection(context, PolicyFile.SECTION_BLACKLIST, Arrays.asList("b.com", "d.com"));
+        delta(PolicyFile.SECTION_BLACKLIST, PolicyStore.ANY_VERSION,
+                Arrays.asList("a.com", "c.com", "e.com", "x.b.com"), Collections.emptyList());
+        // Ordem dos registros: rótulos invertidos (com.a, com.b, com.b.x, ...).
+        assertEquals(Arrays.asList("a.com", "b.com", "x.b.com", "c.com", "d.com", "e.com"),
+                section(PolicyFile.SECTION_BLACKLIST));
+    }
+
+    @Test
+    public void addsIntoEmptySection() throws IOException {
+        delta(PolicyFile.SECTION_KEYWORDS, PolicyStore.ANY_VERSION, Arrays.asList("Bet", "casino", "bet"),
+                Collections.emptyList());
+        assertEquals(Arrays.asList("bet", "casino"), section(PolicyFile.SECTION_KEYWORDS));
+    }
+
+    @Test
+    public void addOfExistingRecordIsNotDuplicated() throws IOException {
+        PolicyStore.replaceSection(context, PolicyFile.SECTION_WHITELIST, Arrays.asList("a.com", "b.com"));
+        delta(PolicyFile.SECTION_WHITELIST, PolicyStore.ANY_VERSION, Arrays.asList("B.COM.", "a.com"),
+                Collections.emptyList());
+        PolicyFile file = PolicyStore.open(context);
+        assertEquals(2, file.section(PolicyFile.SECTION_WHITELIST).count);
+        assertEquals(Arrays.asList("a.com", "b.com"), section(PolicyFile.SECTION_WHITELIST));
+    }
+
+    @Test
+    public void removesDropExistingAndIgnoreMissing() throws IOException {
+        PolicyStore.replaceSection(context, PolicyFile.SECTION_BLACKLIST,
+                Arrays.asList("a.com", "b.com", "c.com", "sub.c.com"));
+        delta(PolicyFile.SECTION_BLACKLIST, PolicyStore.ANY_VERSION, Collections.emptyList(),
+                Arrays.asList("a.com", "c.com", "zzz.org"));
+        // Remover c.com não leva o subdomínio listado.
+        assertEquals(Arrays.asList("b.com", "sub.c.com"), section(PolicyFile.SECTION_BLACKLIST));
+    }
+
+    @Test
+    public void removeWinsOverAddInTheSameDelta() throws IOException {
+        PolicyStore.replaceSection(context, PolicyFile.SECTION_BLACKLIST, Arrays.asList("a.com", "b.com"));
+        delta(PolicyFile.SECTION_BLACKLIST, PolicyStore.ANY_VERSION, Arrays.asList("b.com", "c.com"),
+                Arrays.asList("b.com", "c.com"));
+        assertEquals(Collections.singletonList("a.com"), section(PolicyFile.SECTION_BLACKLIST));
+    }
+
+    @Test
+    public void otherSectionsAreCopiedUnchanged() throws IOException {
+        PolicyStore.replaceSection(context, PolicyFile.SECTION_WHITELIST, Collections.singletonList("ok.com"));
+        PolicyStore.replaceSection(context, PolicyFile.SECTION_KEYWORDS, Collections.singletonList("bet"));
+        delta(PolicyFile.SECTION_BLACKLIST, PolicyStore.ANY_VERSION, Collections.singletonList("bad.com"),
+                Collections.emptyList());
+        assertEquals(Collections.singletonList("ok.com"), section(PolicyFile.SECTION_WHITELIST));
+        assertEquals(Collections.singletonList("bet"), section(PolicyFile.SECTION_KEYWORDS));
+    }
+
+    @Test
+    public void blacklistFilterIsRebuiltFromTheMergedList() throws IOException {
+        PolicyStore.replaceSection(context, PolicyFile.SECTION_BLACKLIST, Collections.singletonList("old.com"));
+        delta(PolicyFile.SECTION_BLACKLIST, PolicyStore.ANY_VERSION, Collections.singletonList("new.org"),
+                Collections.emptyList());
+        DomainBloom filter = DomainBloom.from(PolicyStore.open(context).section(PolicyFile.SECTION_BLACKLIST_FILTER));
+        assertTrue(filter.mightMatch("www.new.org", 0, 11, false));
+        assertTrue(filter.mightMatch("old.com", 0, 7, false));
+    }
+
+    @Test
+    public void versionAdvancesOnEveryWrite() throws IOException {
+        long v1 = PolicyStore.replaceSection(context, PolicyFile.SECTION_BLACKLIST, Collections.singletonList("a.com"));
+        long v2 = delta(PolicyFile.SECTION_BLACKLIST, v1, Collections.singletonList("b.com"), Collections.emptyList());
+        assertEquals(v1 + 1, v2);
+        assertEquals(v2, PolicyStore.currentVersion(context));
+        assertEquals(v2, context.getSharedPreferences(SentinelaAccessibilityService.getPrefsName(), 0)
+                .getLong(SentinelaAccessibilityService.getKeyPolicyFileVersion(), 0L));
+    }
+
+    @Test
+    public void staleExpectedVersionConflictsAndLeavesFileUntouched() throws IOException {
+        long v1 = PolicyStore.replaceSection(context, PolicyFile.SECTION_BLACKLIST, Collections.singletonList("a.com"));
+        long v2 = PolicyStore.replaceSection(context, PolicyFile.SECTION_WHITELIST, Collections.singletonList("w.com"));
+        try {
+            delta(PolicyFile.SECTION_BLACKLIST, v1, Collections.singletonList("b.com"), Collections.emptyList());
+            fail("esperava VersionConflictException");
+        } catch (PolicyStore.VersionConflictException e) {
+            assertEquals(v2, e.currentVersion);
+        }
+        assertEquals(v2, PolicyStore.currentVersion(context));
+        assertEquals(Collections.singletonList("a.com"), section(PolicyFile.SECTION_BLACKLIST));
+        assertFalse(new java.io.File(tmp.getRoot(), PolicyStore.FILE_NAME + ".tmp").exists());
+    }
+}
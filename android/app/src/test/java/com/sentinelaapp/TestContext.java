@@ -0,0 +1,177 @@
+package com.sentinelaapp;
+
+import android.content.Context;
+import android.content.ContextWrapper;
+import android.content.SharedPreferences;
+
+import java.io.File;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/** Context mínimo para testes de JVM: filesDir num diretório temporário e prefs em memória. */
+final class TestContext extends ContextWrapper {
+    private final File filesDir;
+    private final Map<String, MemoryPreferences> prefs = new HashMap<>();
+
+    TestContext(File filesDir) {
+        super(null);
+        this.filesDir = filesDir;
+    }
+
+    @Override
+    public File getFilesDir() {
+        return filesDir;
+    }
+
+    @Override
+    public Context getApplicationContext() {
+        return this;
+    }
+
+    @Override
+    public SharedPreferences getSharedPreferences(String name, int mode) {
+        MemoryPreferences p = prefs.get(name);
+        if (p == null) {
+            p = new MemoryPreferences();
+            prefs.put(name, p);
+        }
+        return p;
+    }
+
+    /** SharedPreferences sem disco; apply e commit gravam na hora, sem listeners. */
+    static final class MemoryPreferences implements SharedPreferences {
+        private final Map<String, Object> values = new HashMap<>();
+
+        @Override
+        public synchronized Map<String, ?> getAll() {
+            return new HashMap<>(values);
+        }
+
+        @Override
+        public synchronized String getString(String key, String defValue) {
+            Object v = values.get(key);
+            return v != null ? (String) v : defValue;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public synchronized Set<String> getStringSet(String key, Set<String> defValues) {
+            Object v = values.get(key);
+            return v != null ? new HashSet<>((Set<String>) v) : defValues;
+        }
+
+        @Override
+        public synchronized int getInt(String key, int defValue) {
+            Object v = values.get(key);
+            return v != null ? (Integer) v : defValue;
+        }
+
+        @Override
+        public synchronized long getLong(String key, long defValue) {
+            Object v = values.get(key);
+            return v != null ? (Long) v : defValue;
+        }
+
+        @Override
+        public synchronized float getFloat(String key, float defValue) {
+            Object v = values.get(key);
+            return v != null ? (Float) v : defValue;
+        }
+
+        @Override
+        public synchronized boolean getBoolean(String key, boolean defValue) {
+            Object v = values.get(key);
+            return v != null ? (Boolean) v : defValue;
+        }
+
+        @Override
+        public synchronized boolean contains(String key) {
+            return values.containsKey(key);
+        }
+
+        @Override
+        public Editor edit() {
+            return new MemoryEditor();
+        }
+
+        @Override
+        public void registerOnSharedPreferenceChangeListener(OnSharedPreferenceChangeListener listener) {}
+
+        @Override
+        public void unregisterOnSharedPreferenceChangeListener(OnSharedPreferenceChangeListener listener) {}
+
+        private final class MemoryEditor implements Editor {
+            private final Map<String, Object> puts = new HashMap<>();
+            private final Set<String> removes = new HashSet<>();
+            private boolean clear;
+
+            @Override
+            public Editor putString(String key, String value) {
+                puts.put(key, value);
+                return this;
+            }
+
+            @Override
+            public Editor putStringSet(String key, Set<String> values) {
+                puts.put(key, values != null ? new HashSet<>(values) : null);
+                return this;
+            }
+
+            @Override
+            public Editor putInt(String key, int value) {
+                puts.put(key, value);
+                return this;
+            }
+
+            @Override
+            public Editor putLong(String key, long value) {
+                puts.put(key, value);
+                return this;
+            }
+
+            @Override
+            public Editor putFloat(String key, float value) {
+                puts.put(key, value);
+                return this;
+            }
+
+            @Override
+            public Editor putBoolean(String key, boolean value) {
+                puts.put(key, value);
+                return this;
+            }
+
+            @Override
+            public Editor remove(String key) {
+                removes.add(key);
+                return this;
+            }
+
+            @Override
+            public Editor clear() {
+                clear = true;
+                return this;
+            }
+
+            @Override
+            public boolean commit() {
+                synchronized (MemoryPreferences.this) {
+                    if (clear) values.clear();
+                    for (String key : removes) values.remove(key);
+                    for (Map.Entry<String, Object> e : puts.entrySet()) {
+                        if (e.getValue() == null) values.remove(e.getKey());
+                        else values.put(e.getKey(), e.getValue());
+                    }
+                }
+                return true;
+            }
+
+            @Override
+            public void apply() {
+                commit();
+            }
+        }
+    }
+}
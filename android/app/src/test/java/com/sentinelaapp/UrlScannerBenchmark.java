@@ -0,0 +1,47 @@
+package com.sentinelaapp;
+
+import static org.junit.Assume.assumeTrue;
+
+import org.junit.Test;
+
+/**
+ * UrlScanner contra o regex antigo no corpus de barra de endereço. Só roda com
+ * ./gradlew :app:testDebugUnitTest -Dsentinela.benchmarks=true (resultado no log do teste).
+ */
+public class UrlScannerBenchmark {
+    private static final int WARMUP = 200_000;
+    private static final int ITERATIONS = 1_000_000;
+
+    @Test
+    public void scannerVersusLegacyRegex() {
+        assumeTrue(Boolean.getBoolean("sentinela.benchmarks"));
+        String[] corpus = UrlScannerTest.ADDRESS_BAR_CORPUS;
+        UrlScanner.Span span = new UrlScanner.Span();
+
+        long sink = 0;
+        for (int i = 0; i < WARMUP; i++) {
+            String text = corpus[i % corpus.length];
+            String host = UrlScannerTest.legacyHost(text);
+            if (host != null) sink += host.length();
+            if (UrlScanner.parse(text, 0, text.length(), false, span)) sink += span.hostLength();
+        }
+
+        long start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            String host = UrlScannerTest.legacyHost(corpus[i % corpus.length]);
+            if (host != null) sink += host.length();
+        }
+        long legacyNs = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            String text = corpus[i % corpus.length];
+            if (UrlScanner.parse(text, 0, text.length(), false, span)) sink += span.hostLength();
+        }
+        long scannerNs = System.nanoTime() - start;
+
+        System.out.printf("UrlScanner: regex %.1f ns/op, scanner %.1f ns/op (%.1fx) [%d]%n",
+                (double) legacyNs / ITERATIONS, (double) scannerNs / ITERATIONS,
+                (double) legacyNs / scannerNs, sink);
+    }
+}
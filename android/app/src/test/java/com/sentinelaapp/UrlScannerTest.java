@@ -0,0 +1,152 @@
+package com.sentinelaapp;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.util.Locale;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/** Paridade do UrlScanner com o caminho antigo (startsWith + regex DOMAIN_EXTRACT). */
+public class UrlScannerTest {
+
+    /** Textos de barra de endereço com o mesmo host nos dois caminhos. */
+    static final String[] ADDRESS_BAR_CORPUS = {
+            "https://example.com",
+            "https://example.com/",
+            "http://example.com/path/to/page.html",
+            "https://www.Example.COM/Search?q=1",
+            "https://example.com:8443/admin",
+            "http://example.com:abc/x",
+            "https://sub.domain.example.co.uk/a/b?c=d#frag",
+            "https://example.com?q=a/b",
+            "https://example.com#top",
+            "https://example.com\\evil",
+            "  https://example.com/trim  ",
+            "https://192.168.0.1/router",
+            "https://xn--80ak6aa92e.com/",
+            "https://münchen.de/stadt",
+            "https://m.facebook.com/home.php",
+            "https://www.google.com/search?q=sentinela+app&oq=sentinela",
+            "https://a.b.c.d.e.f.example.org",
+            "http://localhost:3000/dev",
+            "https://example.com/path with spaces",
+            "https://EXAMPLE.com:443",
+            "http://example.com:99999/",
+            "https://bet365.com/#/AS/B1/",
+            "https://t.co/abc123",
+            "example.com",
+            "example.com/path",
+            "buscar bet",
+            "about:blank",
+            "chrome://newtab",
+            "",
+            "   ",
+            "ftp://example.com/file",
+            "https//example.com",
+            "http:/example.com",
+    };
+
+    /** O caminho removido em 95c2a41: findUrlByViewId + extractDomain. */
+    private static final Pattern DOMAIN_EXTRACT = Pattern.compile(
+            "https?://([^/\\\\?#]+)", Pattern.CASE_INSENSITIVE);
+
+    static String legacyHost(String text) {
+        String url = text.trim();
+        if (!url.startsWith("http://") && !url.startsWith("https://")) return null;
+        Matcher m = DOMAIN_EXTRACT.matcher(url);
+        if (!m.find()) return null;
+        String host = m.group(1);
+        int portIdx = host.indexOf(':');
+        if (portIdx >= 0) host = host.substring(0, portIdx);
+        return host.toLowerCase(Locale.ROOT);
+    }
+
+    static String scannerHost(String text) {
+        UrlScanner.Span span = new UrlScanner.Span();
+        if (!UrlScanner.parse(text, 0, text.length(), false, span)) return null;
+        return text.substring(span.hostStart, span.hostEnd).toLowerCase(Locale.ROOT);
+    }
+
+    @Test
+    public void addressBarCorpusMatchesLegacyRegex() {
+        for (String text : ADDRESS_BAR_CORPUS) {
+            assertEquals(text, legacyHost(text), scannerHost(text));
+        }
+    }
+
+    @Test
+    public void documentedDivergencesFromLegacyRegex() {
+        // Userinfo: o regex devolvia "user"; o host é o que vem depois do '@'.
+        assertEquals("user", legacyHost("https://user:pw@example.com/"));
+        assertEquals("example.com", scannerHost("https://user:pw@example.com/"));
+        // IPv6 entre colchetes fica inteiro.
+        assertEquals("[", legacyHost("http://[::1]:8080/"));
+        assertEquals("[::1]", scannerHost("http://[::1]:8080/"));
+        // Ponto final removido.
+        assertEquals("example.com.", legacyHost("https://example.com./"));
+        assertEquals("example.com", scannerHost("https://example.com./"));
+        // Host vazio é rejeitado.
+        assertEquals("", legacyHost("https://:80/"));
+        assertEquals(null, scannerHost("https://:80/"));
+    }
+
+    @Test
+    public void parseReportsOffsets() {
+        String text = "  https://Example.com:8080/a?b#c ";
+        UrlScanner.Span span = new UrlScanner.Span();
+        assertTrue(UrlScanner.parse(text, 0, text.length(), false, span));
+        assertTrue(span.hasScheme);
+        assertEquals(2, span.start);
+        assertEquals(text.length() - 1, span.end);
+        assertEquals("Example.com", text.substring(span.hostStart, span.hostEnd));
+        assertEquals(8080, span.port);
+        assertEquals("/a?b#c", text.substring(span.pathStart, span.end));
+    }
+
+    @Test
+    public void bareHostsOnlyWhenAllowed() {
+        UrlScanner.Span span = new UrlScanner.Span();
+        assertFalse(UrlScanner.parse("example.com/path", 0, 16, false, span));
+        assertTrue(UrlScanner.parse("example.com/path", 0, 16, true, span));
+        assertFalse(span.hasScheme);
+        assertEquals(11, span.hostEnd);
+        assertFalse(UrlScanner.parse("buscar bet.com", 0, 14, true, span));
+        assertFalse(UrlScanner.parse("about:blank", 0, 11, true, span));
+        assertFalse(UrlScanner.parse("localhost", 0, 9, true, span));
+        assertFalse(UrlScanner.parse("a..b", 0, 4, true, span));
+        assertFalse(UrlScanner.parse("example.com:abc", 0, 15, true, span));
+    }
+
+    @Test
+    public void findMatchesLegacyGatheredTextExtraction() {
+        String text = "Resultados\nVisite https://bet.example.com/promo) ou \"http://other.org\"";
+        UrlScanner.Span span = new UrlScanner.Span();
+        assertTrue(UrlScanner.find(text, 0, span));
+        assertEquals("https://bet.example.com/promo", text.substring(span.start, span.end));
+        assertEquals("bet.example.com", text.substring(span.hostStart, span.hostEnd));
+        assertTrue(UrlScanner.find(text, span.end, span));
+        assertEquals("other.org", text.substring(span.hostStart, span.hostEnd));
+        assertFalse(UrlScanner.find(text, span.end, span));
+    }
+
+    @Test
+    public void findReturnsEarliestUrl() {
+        // O caminho antigo procurava "https://" antes de "http://"; o scanner pega a primeira.
+        String text = "http://first.com depois https://second.com";
+        UrlScanner.Span span = new UrlScanner.Span();
+        assertTrue(UrlScanner.find(text, 0, span));
+        assertEquals("first.com", text.substring(span.hostStart, span.hostEnd));
+    }
+
+    @Test
+    public void findSkipsUrlsWithoutHost() {
+        String text = "https:// nada aqui HTTPS://Host.com/x";
+        UrlScanner.Span span = new UrlScanner.Span();
+        assertTrue(UrlScanner.find(text, 0, span));
+        assertEquals("Host.com", text.substring(span.hostStart, span.hostEnd));
+    }
+}
@@ -1,5 +1,5 @@
 import AsyncStorage from '@react-native-async-storage/async-storage';
-import {DeviceEventEmitter, NativeModules} from 'react-native';
+import {DeviceEventEmitter, NativeEventEmitter, NativeModules} from 'react-native';
 
 import {getMergedBlacklist, syncBlacklist} from './blacklistSyncService';
 import {
@@ -7,6 +7,8 @@ import {
   getEffectiveKeywords,
 } from './manualDomainListService';
 
+type PolicyListName = 'blacklist' | 'whitelist' | 'keywords';
+
 const {BlockingModule, AppBlockModule} = NativeModules as {
   BlockingModule?: {
     setUrlBlockingEnabled?: (enabled: boolean) => Promise<void>;
@@ -14,16 +16,97 @@ const {BlockingModule, AppBlockModule} = NativeModules as {
     setBlacklist?: (domains: string[]) => Promise<void>;
     setWhitelist?: (domains: string[]) => Promise<void>;
     setKeywords?: (keywords: string[]) => Promise<void>;
+    importDomainList?: (
+      source: string,
+      list: 'blacklist' | 'whitelist',
+      replace: boolean,
+    ) => Promise<{entries: number; version: number}>;
+    getPolicyVersion?: () => Promise<number>;
+    addDomains?: (list: PolicyListName, values: string[]) => Promise<number>;
+    removeDomains?: (list: PolicyListName, values: string[]) => Promise<number>;
+    applyDelta?: (
+      list: PolicyListName,
+      baseVersion: number,
+      adds: string[],
+      removes: string[],
+    ) => Promise<number>;
   };
   AppBlockModule?: {
     setBlockingEnabled?: (enabled: boolean) => Promise<void>;
+    getDecisions?: (
+      cursor: number,
+      limit: number,
+    ) => Promise<{
+      decisions: BlockDecision[];
+      nextCursor: number;
+      oldestCursor: number;
+      truncated: boolean;
+    }>;
+    addListener?: (eventName: string) => void;
+    removeListeners?: (count: number) => void;
   };
 };
 
 const SHIELD_STATUS_KEY = '@sentinela/shield_status';
 export const SHIELD_STATUS_EVENT = 'sentinela.shield_status_changed';
+export const IMPORT_PROGRESS_EVENT = 'sentinela.import_progress';
+export const DECISIONS_EVENT = 'sentinela.decisions';
 let shieldTransitionInFlight = false;
 
+export type DecisionRule =
+  | 'app'
+  | 'domain'
+  | 'keyword'
+  | 'force'
+  | 'rest'
+  | 'tampering'
+  | 'tempUnlock'
+  | 'whitelist';
+
+/** Decisão do motor nativo (DecisionLog); seq serve de cursor para getDecisions. */
+export type BlockDecision = {
+  seq: number;
+  time: number;
+  rule: DecisionRule;
+  blocked: boolean;
+  packageName: string | null;
+  detail: string | null;
+  latencyMs: number;
+};
+
+/**
+ * Recebe as decisões em lotes (DecisionEventStream). dropped > 0 indica que o nativo
+ * descartou decisões sem JS ativo; recupere a lacuna com AppBlockModule.getDecisions.
+ */
+export function subscribeToDecisions(
+  onBatch: (decisions: BlockDecision[], dropped: number) => void,
+): () => void {
+  if (!AppBlockModule?.addListener) {
+    return () => undefined;
+  }
+  const emitter = new NativeEventEmitter(AppBlockModule as any);
+  const sub = emitter.addListener(
+    DECISIONS_EVENT,
+    (batch: {stride: number; data: unknown[]; dropped: number}) => {
+      const {stride, data} = batch;
+      const decisions: BlockDecision[] = [];
+      for (let i = 0; i + stride <= data.length; i += stride) {
+        decisions.push({
+          seq: data[i] as number,
+          time: data[i + 1] as number,
+          rule: data[i + 2] as DecisionRule,
+          blocked: data[i + 3] as boolean,
+          packageName: data[i + 4] as string | null,
+          detail: data[i + 5] as string | null,
+          latencyMs: data[i + 6] as number,
+        });
+      }
+      onBatch(decisions, batch.dropped);
+    },
+  );
+  return () => sub.remove();
+}
+
 export type ShieldStatus = {
   enabled: boolean;
   paused: boolean;